@@ -80,7 +80,7 @@ public class Main {
                    sf = Projection.builder (1,1,X);
         SetFunction fc=ProjectionComp.factory(f).cast(), sfc = ProjectionComp.factory(sf).cast(),
                     succ = Successor.factory(2,sfc), un = Union.factory(false, fc, succ);
-        Domain d = new Domain(X);
+        Domain d = Domain.of(X);
         Tuple t = new Tuple(d,un);
         System.out.println(un);
         System.out.println(un.normalize().toStringDetailed());
@@ -272,7 +272,7 @@ public class Main {
         
         System.out.println("normalizzo\n"+ f7+ "\n"+Expressions.toStringDetailed(f7.simplify()));
         Tuple t1,t2,t3;
-        Domain d2 = new Domain(C2,C2), d1;
+        Domain d2 = Domain.of(C2,C2), d1;
         t1 = new Tuple(null, null, d2, f6); t2 = new Tuple(null, null, d2, f7);
         TupleSum ts = (TupleSum) TupleSum.factory(false,t1,t2);
         System.out.println("semplifico\n"+ ts+ "\n"+Expressions.toStringDetailed(ts.simplify()));
@@ -476,7 +476,7 @@ public class Main {
         System.out.println(Expressions.toStringDetailed(bc.simplify()));
         
         System.out.println("\n******** tuple ***********\n");
-        Domain d1 = new Domain(C1,C1,C2,C2,C2) /*null*/;
+        Domain d1 = Domain.of(C1,C1,C2,C2,C2) /*null*/;
         System.out.println("d1: "+d1);
         FunctionTuple in , f_t;
         TupleSum sum;
@@ -690,8 +690,8 @@ public class Main {
         final Intersection in1 = (Intersection) Intersection.factory(false,p1_4c, p2c),
                            in2 = (Intersection) Intersection.factory(false,p1c, p2_1c);
         final And guard, filter, guard2;
-        Domain d3 = new Domain(A,A,A),
-                d2  = new Domain(A,A);
+        Domain d3 = Domain.of(A,A,A),
+                d2  = Domain.of(A,A);
         
         //filter
         eq1 = (Equality) Equality.builder(a1,a2_4,true,d3);
@@ -725,13 +725,13 @@ public class Main {
         
         List<SetFunction> args = Collections.nCopies(5, (SetFunction)p1c);
         args.set(1, Intersection.factory(false,p1c,ProjectionComp.factory(a1.setExp(1)).cast()));
-        Tuple sx = new Tuple(null,args,null, new Domain(A));
+        Tuple sx = new Tuple(null,args,null, Domain.of(A));
         //sx.setComponent(1, a1);
         //sx.setComponent(2, Intersection.factory(false,p1c,ProjectionComp.factory(a1.setExp(1))));
         //sx.setComponent(3, Intersection.factory(false,p1c,ProjectionComp.factory(a1.setExp(1))));
         //sx.setComponent(4, a1);
         System.out.println("\nsx\n"+sx);
-        System.out.println(new TupleComposition(sx, new Tuple(null, Collections.singletonList(p1c),null,new Domain(A))).simplify());
+        System.out.println(new TupleComposition(sx, new Tuple(null, Collections.singletonList(p1c),null,Domain.of(A))).simplify());
         //System.exit(0);
     }
     
@@ -744,8 +744,8 @@ public class Main {
         Guard g0,g1,g2,g3,g4,g5,g6,g7,g8,g9,g10,g11,g12;
         p1= Projection.builder(1,-2,C1);
         p2 = Projection.builder(2,1,C1);
-        g1 = Equality.builder(p1,p2,false,new Domain(C1,C1));
-        g2 = Equality.builder(p2,p1,false,new Domain(C1,C1));
+        g1 = Equality.builder(p1,p2,false,Domain.of(C1,C1));
+        g2 = Equality.builder(p2,p1,false,Domain.of(C1,C1));
         if (!g1.equals(g2)) {
             System.out.println("problema");
             throw new Error();
@@ -754,7 +754,7 @@ public class Main {
         System.out.println("ecco g1\n"+g1+" "+g1.getDomain());
         System.out.println("ecco g1 semplificato\n"+Expressions.toStringDetailed(g1.simplify()));
         p4 = Projection.builder(2,C1);
-        g2 =  Equality.builder(p1,p4,true,new Domain(C1,C1));
+        g2 =  Equality.builder(p1,p4,true,Domain.of(C1,C1));
         //g11 = And.factory(g1,g2,new True(g1.getDomain()));
         //System.out.println("ecco g11\n"+g11);
         //System.out.println("ecco g11 semplificato\n"+Expressions.toStringDetailed(simplify(g11)));
@@ -766,13 +766,13 @@ public class Main {
         Projection np1 = Projection.builder(1,C2), np2 = Projection.builder(2,C2),
                    np3 = Projection.builder(3, C2), np4 = Projection.builder(4,C2),
                    np5 = Projection.builder(5,C2);
-        Membership m1 = (Membership) Membership.build(np4,sc2,true,new Domain(C2,C2,C2,C2)),
-                   m2 = (Membership) Membership.build(np4,sc1,false,new Domain(C2,C2,C2,C2));
+        Membership m1 = (Membership) Membership.build(np4,sc2,true,Domain.of(C2,C2,C2,C2)),
+                   m2 = (Membership) Membership.build(np4,sc1,false,Domain.of(C2,C2,C2,C2));
         g0 = (Guard) g2.andFactory(m1, m2/*, false*/);
         System.out.println("ecco g0\n"+g0);
         System.out.println("ecco g0 semplificato\n"+Expressions.toStringDetailed(g0.simplify()));
         
-        Domain d1 = new Domain(C1,C1,C1,C1,C2,C2,C2,C2,C2);
+        Domain d1 = Domain.of(C1,C1,C1,C1,C2,C2,C2,C2,C2);
         System.out.println("d1: "+d1);
         Equality eq1 = (Equality) Equality.builder(np2,np3,false,d1), 
                  eq2 = (Equality) Equality.builder(np3,np4,false,d1), 
@@ -906,8 +906,8 @@ public class Main {
                    c_5 = Projection.builder(5, C);
         Subcl S_1 = Subcl.factory(1, C),
               S_2 = Subcl.factory(2, C) ; 
-        Domain d1 = new Domain(C),
-               d2 = new Domain(C,C); // C x C
+        Domain d1 = Domain.of(C),
+               d2 = Domain.of(C,C); // C x C
         Guard g1 = Membership.build(c_1, S_1, true, d2),
               g2 = Membership.build(c_2, S_1, true, d2),
               g1_1 = Membership.build(c_1, S_1, true, d1),
@@ -985,7 +985,7 @@ public class Main {
         l2 = new LinearComb(c_2,c_4/*,c_1,S_1,c_4,S_2*/);
         l3 = new LinearComb(c_3,c_2,c_2,c_1/*,S_1,c_4,c_5,S_2,S_1*/);
         System.out.println(l+" -> "+l.components());
-        Domain d4 = new Domain(C,C,C,C,C,C2,C2,C2,C2,C2);
+        Domain d4 = Domain.of(C,C,C,C,C,C2,C2,C2,C2,C2);
         WNtuple wnt;
         List<LinearComb> lb = new ArrayList<>(Arrays.asList(new LinearComb[] {l1,l2,l3,l}));
         Equality eq1 = (Equality) Equality.builder(c_2,c_3,false,d4), 
@@ -995,11 +995,11 @@ public class Main {
         System.out.println(ng1.getSort());
         wnt = (WNtuple) new WNtuple(null,lb,ng1,d4, true).normalize();
         System.out.println("expansion of "+wnt);
-        for (WNtuple tx : wnt.singleIndexComponentsTuples()) {
+        wnt.singleIndexComponentsStream().forEach(tx -> {
         	System.out.println("->\n"+tx);
         	System.out.println("independent subtuples of"+tx+"->\n"+tx.independentComponentsV2());
             
-        }
+        });
         //System.exit(1);
         /*BagComp<ElementaryFunction> bc = new BagComp<>(l,l1);
         System.out.println("semplifico:\n"+bc);
@@ -1068,7 +1068,7 @@ public class Main {
         Subcl sd2 = Subcl.factory(2, D); // constant D{2}
         SetFunction inter;
         inter = Intersection.factory(comp_d_1, sd2); // D{2} \cap S -d1 
-        Domain dom = new Domain(C,C,D); // domain C^2 x D
+        Domain dom = Domain.of(C,C,D); // domain C^2 x D
         Guard g1 = Membership.build(d_1, sd2, true, dom); // guard d_1 \in D{2}
         Tuple t1 , t2, t3;
         t1 = new Tuple(dom, c_1, comp_c_1, c_2, d_1); // <c_1,S-c_1,!c_2,d_1>
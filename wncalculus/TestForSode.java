@@ -37,8 +37,8 @@ public class TestForSode {
         Subcl sc1 = Subcl.factory(1, c1); // S{C1}
    
         //domini
-        Domain d1 = new Domain(c1,c1),    // d1 : c1 x c1
-               d2 = new Domain(c1,c1,c1); // d2 : c1 x c1 x c1
+        Domain d1 = Domain.of(c1,c1),    // d1 : c1 x c1
+               d2 = Domain.of(c1,c1,c1); // d2 : c1 x c1 x c1
         
         //guardie-filtri
         Equality e1 = (Equality) Equality.builder(x1, x2, true, d1), // [x1 = x2]
@@ -3,6 +3,7 @@ package wncalculus.bagexpr;
 import java.util.*;
 import wncalculus.expr.*;
 import wncalculus.color.ColorClass;
+import wncalculus.util.IntMap;
 import wncalculus.util.Util;
 
 /**
@@ -13,26 +14,33 @@ import wncalculus.util.Util;
  */
 public abstract class AbstractBag<E extends ParametricExpr> implements Bag<E> {
         
-    private final Map<? extends E,Integer> map ; // the bag is implemented as a map for the sake of efficiency
+    private final IntMap<E> map ; // the bag is implemented as a (read-only) primitive map for the sake of efficiency
     private final Domain   dom, codom;
     private boolean simplified;
 
     
     /**
      * main constructor: builds a <tt>AbstractBag</tt> from a <tt>Map</tt>, which is
-     * assumed non-empty; map elements associated with value zero are removed
-     * in a destructive way from the map
-     * the map is backed by the bag, which provides an unmodifiable view on it
+     * assumed non-empty; map elements associated with value zero are not considered;
+     * if the map is an <tt>IntMap</tt> it is not copied: its ownership passes to the bag, which backs it
+     * and (if the map is modifiable) removes its zero values and freezes it, so that the map
+     * becomes read-only (a caller needing to modify the map further must pass a copy);
+     * any other map is copied
      * @param m a map
      * @throws NoSuchElementException if the map is empty
     */
     public AbstractBag(Map<? extends E, Integer> m) {
        E e = m.keySet().iterator().next(); // throws an exception if m is empty
-       m.values().removeAll(Collections.singleton(0)); // 0-multiplicity elements are removed
-       Expressions.checkArity(m.keySet());
+       @SuppressWarnings("unchecked") // sound, since the map is made read-only
+       IntMap<E> im = m instanceof IntMap<?> ? (IntMap<E>) m : IntMap.copyOf(m);
+       if (! im.frozen()) {
+           im.removeZeros(); // 0-multiplicity elements are removed
+           im.freeze();
+       }
+       Expressions.checkArity(im.keySet());
        this.dom   = e.getDomain();
        this.codom = e.getCodomain();
-       this.map = Collections.unmodifiableMap(m);
+       this.map = im;
     }
     
     public AbstractBag(E e, int k) {
@@ -52,13 +60,23 @@ public abstract class AbstractBag<E extends ParametricExpr> implements Bag<E> {
         this.dom        = dom;
         this.codom      = codom;
         this.simplified = true;
-        this.map = Collections.EMPTY_MAP;
+        this.map = IntMap.empty();
     }
         
     @Override
     public final Map<? extends E, Integer> asMap() {
         return this.map;
     }
+    
+    @Override
+    public final IntMap<? extends E> asIntMap() {
+        return this.map;
+    }
+    
+    @Override
+    public final int mult(E e) {
+        return this.map.getInt(e);
+    }
               
     @Override
     public final Domain getDomain() {
@@ -87,21 +105,22 @@ public abstract class AbstractBag<E extends ParametricExpr> implements Bag<E> {
     
     @Override
     public final String toString( ) {
-        if ( this.map.isEmpty() ) 
-            return Bag.EMPTY + "_" + this.codom.names();
-            
-        Iterator<? extends Map.Entry<? extends E, Integer>> it = this.map.entrySet().iterator(); //necessario?
-        Map.Entry<? extends E, Integer> next = it.next();
-        String repr = next.getValue()+ prnterm(next.getKey());
-        for (int k; it.hasNext() ; repr += k + prnterm(next.getKey()) ) 
-            if ( (k = (next = it.next()).getValue() ) > 0)
-                repr += '+';
-        
-        return repr;
+        return Printer.toString(this);
     }
     
-    private static String prnterm(Object o) {
-        return o instanceof NonTerminal ? "("+o+')' : o.toString();       
+    @Override
+    public final void print(Printer p) {
+        if ( this.map.isEmpty() ) {
+            p.append(Bag.EMPTY + "_").append(this.codom.names());
+            return;
+        }
+            
+        IntMap<E>.Cursor c = this.map.cursor();
+        c.advance();
+        p.append(c.value()).printOperand(c.key());
+        for (int k; c.advance() ; p.append(k).printOperand(c.key()) ) 
+            if ( (k = c.value() ) > 0)
+                p.append('+');
     }
 
     @Override
@@ -2,6 +2,7 @@ package wncalculus.bagexpr;
 
 import java.util.*;
 import wncalculus.expr.*;
+import wncalculus.util.IntMap;
 
 /**
  * @author Lorenzo Capra
@@ -16,7 +17,14 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
     /** 
      * @return a map-view of this bag
      */
-    Map<? extends E,Integer> asMap ();
+    default Map<? extends E,Integer> asMap () {
+        return asIntMap();
+    }
+    
+    /** 
+     * @return a (read-only) primitive map-view of this bag
+     */
+    IntMap<? extends E> asIntMap ();
    
      
     /**
@@ -24,8 +32,7 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
      * @return the multiplicity of the element in the multiset; 0 if it is not present
      */
     default int mult(E e) {
-        Integer x = asMap().get(e);
-        return x != null ? x : 0;
+        return asIntMap().getInt(e);
     }
     
     /** 
@@ -66,7 +73,10 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
      */
     default Set<? extends E> properSupport() {
         HashSet<E> pset = new HashSet<>();
-        asMap().entrySet().stream().filter(e -> ( e.getValue() > 0 )).forEachOrdered(e -> { pset.add(e.getKey()); });
+        asIntMap().forEachInt((e, k) -> { 
+            if (k > 0) 
+                pset.add(e); 
+        });
             
         return pset;
     }
@@ -76,7 +86,7 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
      * @return <code>true</code> if and only if <code>this</code> is a true bag 
      */
     default boolean isProper () {
-        return isEmpty() || Collections.min(asMap().values()) > 0;
+        return isEmpty() || asIntMap().min() > 0;
     }
     
     /**
@@ -92,9 +102,9 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
          if (isEmpty())
             return build(newdom, newcd) ;
          
-         HashMap<E,Integer> mapcopy = new HashMap<>();
+         IntMap<E> mapcopy = new IntMap<>(size());
          Class<E> type = bagType();
-         asMap().entrySet().forEach(e -> { mapcopy.put(type.cast(e.getKey().clone(newdom, newcd)), e.getValue()); });
+         asIntMap().forEachInt((e, k) -> { mapcopy.putInt(type.cast(e.clone(newdom, newcd)), k); });
          
          return (Bag<E>) build(mapcopy);
     }
@@ -109,14 +119,21 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
        if ( isEmpty() ) 
            return this;
        
-       HashMap<E,Integer> smap = new HashMap<>();
+       IntMap<E> smap = new IntMap<>(size());
        Class<E> type = bagType();
-       Expression nullExpr = asMap().keySet().iterator().next().nullExpr();
-       asMap().entrySet().forEach( s -> {
-           E key = s.getKey(), e = type.cast(key.normalize());
+       List<E> keys = new ArrayList<>(size());
+       int[] mults = new int[size()];
+       for (IntMap<? extends E>.Cursor c = asIntMap().cursor(); c.advance(); ) {
+           mults[keys.size()] = c.value();
+           keys.add(c.key());
+       }
+       Expression nullExpr = keys.get(0).nullExpr();
+       Expression[] normals = Expressions.normalizeAll(keys, null); // bag elements may be normalized in parallel
+       for (int i = 0; i < normals.length; i++) {
+           E e = type.cast(normals[i]);
            if (! e.equals(nullExpr ) ) 
-               smap.put( e, s.getValue());
-       });
+               smap.putInt( e, mults[i]);
+       }
        
        return  smap.isEmpty() ? build() : build(smap).cast();
     }
@@ -156,9 +173,10 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
             small = m;
             big = b;
         }
-        Map<E, Integer> inter = new HashMap<>();
+        IntMap<E> inter = new IntMap<>(small.size());
+        IntMap<? extends E> ibig = big instanceof IntMap<?> ? (IntMap<? extends E>) big : IntMap.copyOf(big);
         for (Map.Entry<? extends E, Integer> x : small.entrySet()) 
-            inter.put(x.getKey(), Math.min(big.getOrDefault(x.getKey(), 0), x.getValue()));
+            inter.putInt(x.getKey(), Math.min(ibig.getInt(x.getKey()), x.getValue()));
         //System.out.println("pairwisesum: "+inter); //debug
         return inter;
     }
@@ -175,10 +193,10 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
              return Collections.emptyMap();
 
         if (k == 1)
-            return Collections.unmodifiableMap(b);
+            return b instanceof IntMap<?> && ((IntMap<?>) b).frozen() ? (Map<E, Integer>) b : Collections.unmodifiableMap(b);
         
-        HashMap<E,Integer> m = new HashMap<>();
-        b.entrySet().forEach(e -> { m.put(e.getKey(), k * e.getValue()); });
+        IntMap<E> m = IntMap.copyOf(b);
+        m.scale(k);
         return m;
     }
     
@@ -191,7 +209,10 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
      * @param k multiplicative coefficient
      */
     public static <E> void addAll(Map<E, Integer> sum, Map<? extends E, Integer> m, int k) {
-        m.entrySet().forEach(x -> { add(sum, x.getKey(), x.getValue() * k) ; });
+        if (sum instanceof IntMap<?>)
+            ((IntMap<E>) sum).addAll(m, k);
+        else
+            m.entrySet().forEach(x -> { add(sum, x.getKey(), x.getValue() * k) ; });
     }
 
     /**
@@ -202,7 +223,10 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
      * @param n the value to sum up
      */
     public static <E> void add(Map<E, Integer> sum, E x, int n) {
-        sum.put(x, sum.getOrDefault(x, 0) + n);
+        if (sum instanceof IntMap<?>)
+            ((IntMap<E>) sum).addTo(x, n);
+        else
+            sum.put(x, sum.getOrDefault(x, 0) + n);
     }
     
     @Override
@@ -222,10 +246,10 @@ public interface Bag<E extends ParametricExpr> extends BagExpr, NonTerminal {
         if (b.isEmpty())
             return this;
         
-        HashMap<E,Integer> sum = new HashMap<>(asMap());
-        Bag.addAll(sum, b.asMap(), k);
+        IntMap<E> sum = IntMap.copyOf(asIntMap());
+        sum.addAll(b.asIntMap(), k);
         
-        return (Bag<E>) build(sum);
+        return sum.isEmpty() ? build() : (Bag<E>) build(sum);
     }
     
     /**
@@ -2,6 +2,8 @@ package wncalculus.bagexpr;
 
 import java.util.*;
 import wncalculus.expr.*;
+import wncalculus.util.BoundedCache;
+import wncalculus.util.ComplexKey;
 
 
 /**
@@ -11,6 +13,18 @@ import wncalculus.expr.*;
  * @param <F> bag's base-type
  */
 public abstract class BagTranspose<E extends BagExpr, F extends ParametricExpr> extends UnaryBagOp<E,F> {
+    
+    // the transposes of bags, keyed by the bag and its (co-)domain; since the transpose is an involution,
+    // each bag is also cached as the transpose of its transpose
+    private static final BoundedCache<ComplexKey, BagExpr> CACHE = new BoundedCache<>("bag transposes", 4096);
+    
+    /**
+     * @return the cache of bag transposes, that can be used to set its capacity (zero disables it),
+     * to clear it, and to get its metrics; the cache never needs invalidation, since terms are immutable
+     */
+    public static BoundedCache<ComplexKey, BagExpr> cache() {
+        return CACHE;
+    }
 
     /**
      * build the transpose of a bag-expression
@@ -32,10 +46,16 @@ public abstract class BagTranspose<E extends BagExpr, F extends ParametricExpr>
         if (bag.isEmpty()) 
             return build().cast(); //should be right!
         
-       Map<E,Integer> trmap = new HashMap<>();
-       bag.asMap().entrySet().forEach( e -> { trmap.put( ((Transposable)e.getKey()).buildTransp().cast() , e.getValue() ); });
+       BagExpr tr = CACHE.get(new ComplexKey(bag, bag.getDomain(), bag.getCodomain()), k -> {
+           Map<E,Integer> trmap = new HashMap<>();
+           bag.asMap().entrySet().forEach( e -> { trmap.put( ((Transposable)e.getKey()).buildTransp().cast() , e.getValue() ); });
+           BagExpr trbag = bag.build(trmap);
+           CACHE.put(new ComplexKey(trbag, trbag.getDomain(), trbag.getCodomain()), bag);
+           
+           return trbag;
+       });
         
-       return bag.build(trmap).cast(); 
+       return tr.cast(); 
     }
     
     /*
@@ -61,6 +81,12 @@ public abstract class BagTranspose<E extends BagExpr, F extends ParametricExpr>
         return toStringPost();
     }
 
+    
+    @Override
+    public final void print(Printer p) {
+        printPost(p);
+    }
+
     @Override
     public final boolean isInvolution() {
         return true;
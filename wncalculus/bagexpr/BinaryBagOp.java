@@ -40,6 +40,12 @@ public abstract class BinaryBagOp<E  extends BagExpr> implements TwoArgs<E,E>, B
         return TwoArgs.super.toStringOp();
     }
 
+    
+    @Override
+    public final void print(Printer p) {
+        TwoArgs.super.printOp(p);
+    }
+
     @Override
     public final boolean simplified() {
         return this.simplified;
@@ -2,6 +2,8 @@ package wncalculus.bagexpr;
 
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import wncalculus.guard.*;
 import wncalculus.expr.Domain;
 import wncalculus.logexpr.LogicalExprs;
@@ -9,6 +11,8 @@ import wncalculus.logexpr.OrOp;
 import wncalculus.logexpr.SetExpr;
 import wncalculus.tuple.AllTuple;
 import wncalculus.tuple.Tuple;
+import wncalculus.util.CartesianProduct;
+import wncalculus.util.IntMap;
 import wncalculus.util.Pair;
 import wncalculus.util.Util;
 
@@ -20,6 +24,7 @@ import wncalculus.util.Util;
 */
 public abstract class LogicalBag<E extends SetExpr> extends AbstractBag<E>  {
     private boolean  disjoined;
+    private Integer  card; //cache
     
    
     /**
@@ -30,8 +35,8 @@ public abstract class LogicalBag<E extends SetExpr> extends AbstractBag<E>  {
      * @throws NoSuchElementException if the map is empty
      */
     public LogicalBag(Map<E, Integer> m, boolean disjoint) {
-        super(m); // it may remove 0-value elements
-        this.disjoined = m.size() < 2 || disjoint;
+        super(m); // 0-value elements are not considered
+        this.disjoined = size() < 2 || disjoint;
     }
    
     
@@ -139,7 +144,7 @@ public abstract class LogicalBag<E extends SetExpr> extends AbstractBag<E>  {
         return db != this ? (BagExpr)db.normalize() : db;
     }
     
-    /**ATTENZIONE: RIVEDERE (x EFFICIENZA) SULLA BASE DI QUELLO x LogExpr
+    /**
     *creates a copy of the map corresponding to this bag with pair-wise disjoint keys
     *the map is assumed non empty
     @return the disjoint map corresponding to <tt>this</tt> bag, or <tt>null</tt> if the required cast
@@ -147,9 +152,9 @@ public abstract class LogicalBag<E extends SetExpr> extends AbstractBag<E>  {
     */
     private Map<E, Integer> disjoinAsMap () {
         try {
-            Map<E, Integer> disjoint_m = new HashMap<>();
-            asMap().entrySet().forEach( x -> { addAndDisjoin(x.getKey(), x.getValue(), disjoint_m, bagType()); });
-            return disjoint_m;
+            Disjoiner<E> d = new Disjoiner<>(bagType(), this::signature);
+            asIntMap().forEachInt(d::add);
+            return d.map;
         }
         catch (ClassCastException e) {
              System.err.println("LogicalBag.disjoinAsMap: _> "+e);
@@ -159,48 +164,102 @@ public abstract class LogicalBag<E extends SetExpr> extends AbstractBag<E>  {
     }
     
     /**
-     * given a multi-set (i.e., a map), whose elements are assumed to be "pair-wise" disjoint,
-     * adds an element with an associated multiplicity (k.e) preserving disjointness.
-     * Let m: k1.e1 + k2.e2 + ...+ k_n.e_n; the resulting map is
-     * k.(e - \cup e_i) + sum_i (k+k_i).(e \cap e_i) + sum_i k_i.(e_i - e)
+     * provides a cheap sufficient condition for the disjointness of <tt>this</tt> bag's elements,
+     * used to skip intersections while disjoining: elements with different (non-null) signatures
+     * are assumed disjoint; by default no element has a signature
+     * @param e an element of the bag
+     * @return the element's signature; <tt>null</tt> if there is no one
+     */
+    protected Object signature(E e) {
+        return null;
+    }
+    
+    /**
+     * this class incrementally builds a multi-set (i.e., a map), whose elements are pair-wise disjoint:
+     * elements are indexed by their signatures, so that only the possibly overlapping ones are intersected
+     * (elements without signature are intersected with all)
      * @param <E> the map's domain
-     * @param e the element to be added
-     * @param k the element's multiplicity
-     * @param m the given multi-set
-     * @param token the type of bag's elements
-     
      */
-    private static <E extends SetExpr> void addAndDisjoin (final E e, final int k, final Map<E, Integer> m, final Class<E> token) {    
-        Map<E, Integer> to_replace = new HashMap<>();
-        Collection<E> subtraends = new ArrayList<>(); 
-        if (m.isEmpty()) 
-            m.put(e, k);
-        else {
-            Integer k1 = m.get(e);
-            if ( k1  != null ) 
-                m.put(e, k + k1);
-            else {
-                for (Iterator<E> it = m.keySet().iterator(); it.hasNext(); ) {
-                    E f = it.next(), inter = token.cast(f.andFactory(e, f). normalize()); //normalization needed here     
-                    if (!inter.isFalse() ) { // e and f are not disjoint 
-                        to_replace.put( inter, ( k1 = m.get(f) ) + k );
-                        if (!f.equals(inter))  // f is not contained in e
-                            to_replace.put( token.cast(f.diff(e)/*. normalize()*/), k1 ); //normalization optional here 
-                        it.remove(); // f is removed from m
-                        if (e.equals(inter))  // e is contained in f
-                            break; //because the partial sum is disjoint!
+    private static final class Disjoiner<E extends SetExpr> {
+        
+        private final Class<E> token; // the type of bag's elements
+        private final Function<? super E, ?> sign;
+        private final IntMap<E> map = new IntMap<>();
+        private final Map<Object, Set<E>> signed = new HashMap<>(); // the map's keys, by signature
+        private final Set<E> unsigned = new LinkedHashSet<>(); // the map's keys without signature
+        
+        Disjoiner(Class<E> token, Function<? super E, ?> sign) {
+            this.token = token;
+            this.sign  = sign;
+        }
+        
+        private void put(E e, int k) {
+            boolean fresh = ! this.map.containsKey(e);
+            this.map.putInt(e, k);
+            if (fresh) {
+                Object s = this.sign.apply(e);
+                (s == null ? this.unsigned : this.signed.computeIfAbsent(s, x -> new LinkedHashSet<>())).add(e);
+            }
+        }
+        
+        private void remove(E e) {
+            this.map.remove(e);
+            Object s = this.sign.apply(e);
+            if (s == null)
+                this.unsigned.remove(e);
+            else
+                this.signed.get(s).remove(e);
+        }
+        
+        /**
+         * @return an iterator over the map's keys possibly overlapping with a given element
+         * (the keys are not copied, so the map must not be modified while iterating)
+         */
+        private Iterator<E> candidates(E e) {
+            Object s = this.sign.apply(e);
+            Stream<E> same = s == null ? this.signed.values().stream().flatMap(Set::stream) : 
+                    this.signed.getOrDefault(s, Collections.emptySet()).stream();
+            
+            return Stream.concat(this.unsigned.stream(), same).iterator();
+        }
+        
+        /**
+         * adds an element with an associated multiplicity (k.e) preserving disjointness.
+         * Let m: k1.e1 + k2.e2 + ...+ k_n.e_n; the resulting map is
+         * k.(e - \cup e_i) + sum_i (k+k_i).(e \cap e_i) + sum_i k_i.(e_i - e)
+         * @param e the element to be added
+         * @param k the element's multiplicity
+         */
+        void add(E e, int k) {
+            if (this.map.containsKey(e)) {
+                this.map.putInt(e, k + this.map.getInt(e));
+                return;
+            }
+            
+            Map<E, Integer> to_replace = new LinkedHashMap<>();
+            Collection<E> subtraends = new ArrayList<>(), removed = new ArrayList<>(); 
+            for (Iterator<E> ite = candidates(e); ite.hasNext(); ) {
+                E f = ite.next(), inter = this.token.cast(f.andFactory(e, f). normalize()); //normalization needed here
+                if (!inter.isFalse() ) { // e and f are not disjoint 
+                    int k1 = this.map.getInt(f);
+                    to_replace.put( inter, k1 + k );
+                    if (!f.equals(inter))  // f is not contained in e
+                        to_replace.put( this.token.cast(f.diff(e)/*. normalize()*/), k1 ); //normalization optional here
+                    removed.add(f); // f is removed from the map (once the iteration is over)
+                    if (e.equals(inter))  // e is contained in f
+                        break; //because the partial sum is disjoint!
 
-                        subtraends.add( f );
-                    }
+                    subtraends.add( f );
                 }
-                if (!to_replace.isEmpty()) {
-                    m.putAll(to_replace);
-                    if (!subtraends.isEmpty()) 
-                        m.put(token.cast(e.diff( e.orFactory(subtraends, true))/*. normalize()*/) , k); //normalization optional here 
-                }
-                else 
-                    m.put(e, k);
             }
+            removed.forEach(this::remove);
+            if (!to_replace.isEmpty()) {
+                to_replace.forEach(this::put);
+                if (!subtraends.isEmpty()) 
+                    put(this.token.cast(e.diff( e.orFactory(subtraends, true))/*. normalize()*/) , k); //normalization optional here 
+            }
+            else 
+                put(e, k);
         }
     }
        
@@ -208,16 +267,13 @@ public abstract class LogicalBag<E extends SetExpr> extends AbstractBag<E>  {
     * expand a list of (dijoint) "OR" terms present in <tt>this</tt> bag's map-view
     * @return the expanded map 
     */
-   private HashMap<E, Integer> expand(List<OrOp<E>> orTerms) {
-       HashMap<E, Integer> m = new HashMap<>(asMap()); //copy of this bag's map-view
+   private IntMap<E> expand(List<OrOp<E>> orTerms) {
+       IntMap<E> m = IntMap.copyOf(asIntMap()); //copy of this bag's map-view
        orTerms.forEach( op -> { // for each (disjoint) OR term we expand its operands
-            int k = m.get(op); //molteplicità dell'operatore in m
-            op.getArgs().forEach( e -> {
-                Integer mult = m.get(e);
-                m.put(e, (mult == null ? 0 : mult) + k);
-            });
+            int k = m.getInt(op); //molteplicità dell'operatore in m
+            op.getArgs().forEach( e -> { m.putInt((E) e, m.getInt(e) + k); });
         });
-        m.keySet().removeAll(orTerms); // OR terms are finally removed from the map
+        orTerms.forEach(m::remove); // OR terms are finally removed from the map
         
         return m;
     }
@@ -231,19 +287,23 @@ public abstract class LogicalBag<E extends SetExpr> extends AbstractBag<E>  {
     /**
      * @return the sum of cardinalities of <tt>this</tt> bag's terms weighted by the
      * corresponding multiplicities (it makes sense only if these are positive);
-     * <tt>null</tt> if, for any reasons, some of them cannot be computed
+     * <tt>null</tt> if, for any reasons, some of them cannot be computed; the value is computed once
     */
     @Override
     public Integer card() {
-        int card = 0;
-        for (Map.Entry<? extends E, Integer> x : asMap().entrySet()) {
-            Integer k = x.getKey().cardLb();
-            if (k == null)
-                return null;
-            
-            card += k * x.getValue();
+        if (this.card == null) {
+            int mycard = 0;
+            for (Map.Entry<? extends E, Integer> x : asMap().entrySet()) {
+                Integer k = x.getKey().cardLb();
+                if (k == null)
+                    return null;
+
+                mycard += k * x.getValue();
+            }
+            this.card = mycard;
         }
-        return card;    
+        
+        return this.card;    
     }
     
     /**
@@ -447,10 +507,33 @@ public abstract class LogicalBag<E extends SetExpr> extends AbstractBag<E>  {
         
         List<Set<Map.Entry<Guard, Integer>>> c = new ArrayList<>();
         lm.forEach( m -> { c.add( m.entrySet() ); }); // build the list of sets corresponding to the list of maps
+        final int n = c.size();
+        if (n == 0)
+            throw new IllegalArgumentException("the list just contains null guards (representing empty arc functions!\n");
+        
+        // the product is built one factor at a time: conj[k] is the conjunction of the guards of the current prefix
+        // of length k+1 (null means "true"); prefixes whose conjunction is "false" are dropped; the per-length state
+        // is consistent because the product is traversed by a single spliterator (see CartesianProduct.withPruning)
+        final Guard[] conj = new Guard[n];
+        final Map<Pair<Guard, Guard>, Guard> memo = new HashMap<>(); // partial conjunctions
+        CartesianProduct<Map.Entry<Guard, Integer>> prod = CartesianProduct.of(c);
+        prod = prod.withPruning( prefix -> {
+            int k = prefix.size() - 1;
+            Guard and = conj[k] = conjoin(k == 0 ? null : conj[k - 1], prefix.get(k).getKey(), memo);
+            
+            return and == null || ! and.isFalse();
+        });
+        final CartesianProduct<Map.Entry<Guard, Integer>> fprod = prod;
         HashMap<Guard, List<Integer>> res = new HashMap<>();
-        Util.cartesianProd(c).stream().map( l -> combineGuardCoeff(l)).forEachOrdered(entry -> {
-            Guard g = entry.getKey();
-            if ( g != null && ! g.isFalse() && res.putIfAbsent(g, entry.getValue()) != null)
+        prod.indexSpliterator().forEachRemaining( idx -> {
+            Guard g = conj[n - 1];
+            if (g == null)
+                throw new IllegalArgumentException("the list just contains null guards (representing empty arc functions!\n");
+            
+            List<Integer> li = new ArrayList<>(n); // the coefficients are carried along
+            for (int k = 0; k < n; k++)
+                li.add(fprod.get(k, idx[k]).getValue());
+            if (Collections.frequency(li, 0) != n && res.putIfAbsent(g, li) != null)
                 throw new IllegalArgumentException("identical combinations of guards found! ->\n"+g+ "\nhere is the initial list of maps:\n"+lm);
         });
                     
@@ -466,24 +549,19 @@ public abstract class LogicalBag<E extends SetExpr> extends AbstractBag<E>  {
          return product (Arrays.asList(list_of_entries));
     }
     
-    // given a list of entries {guard,coeff} builds a corresponding pair composed of
-    // the "And" of guards and the associated list of coefficients
-    // if the latter just contains value 0, return (null,null)
-    // this version considers null guards as equivalento to "true"
-    private static Pair<Guard, List<Integer>> combineGuardCoeff (List<? extends Map.Entry<Guard, Integer>> entry_list) {
-        List<Guard> lg = new ArrayList<>();
-        List<Integer> li = new ArrayList<>();
-        entry_list.forEach( e -> {
-            Guard g = e.getKey();
-            if (g != null) // a null value corresponds to "true"
-                lg.add(g);
-            li.add(e.getValue()); // must be added also for null guards!
-        });
-        if (lg.isEmpty())
-            throw new IllegalArgumentException("the list just contains null guards (representing empty arc functions!\n");
+    /**
+     * conjoins a (normalized) partial conjunction with a guard, memoizing the result
+     * @param prev a partial conjunction (<tt>null</tt> means "true")
+     * @param g a guard (<tt>null</tt> means "true")
+     * @param memo the map of already computed conjunctions
+     * @return the normalized conjunction of <tt>prev</tt> and <tt>g</tt>
+     */
+    private static Guard conjoin (Guard prev, Guard g, Map<Pair<Guard, Guard>, Guard> memo) {
+        if (g == null)
+            return prev;
         
-        return Collections.frequency(li, 0) == li.size() ?  new Pair<>(null, null) : 
-                new Pair<>((Guard) And.factory(lg).normalize(true), li);
+        return memo.computeIfAbsent(new Pair<>(prev, g), p -> 
+                (Guard) (prev == null ? And.factory(g) : And.factory(prev, g)).normalize(true));
     }
     
     /**
@@ -2,6 +2,7 @@ package wncalculus.bagexpr;
 
 import java.util.*;
 import wncalculus.expr.ParametricExpr;
+import wncalculus.expr.Printer;
 
 /**
  * this class defines a unary operator that extratcs the positive part of a bag
@@ -52,5 +53,11 @@ public abstract class ProperBag<E  extends BagExpr, F extends ParametricExpr> ex
     public final String toString() {
         return toStringOp();
     }
+
+    
+    @Override
+    public final void print(Printer p) {
+        printOp(p);
+    }
     
 }
\ No newline at end of file
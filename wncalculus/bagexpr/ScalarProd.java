@@ -1,5 +1,7 @@
 package wncalculus.bagexpr;
 
+import wncalculus.expr.Printer;
+
 /**
  * this class implements the bag's scalar product
  * @author lorenzo capra
@@ -70,7 +72,12 @@ public abstract class ScalarProd<E extends BagExpr> extends UnaryBagOp<E,E> {
     
     @Override
     public final String toString() {
-        return "" +this.k + "*("+getArg()+')';
+        return Printer.toString(this);
+    }
+    
+    @Override
+    public final void print(Printer p) {
+        p.append(this.k).append("*(").print(getArg()).append(')');
     }
     
 }
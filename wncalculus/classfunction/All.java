@@ -29,11 +29,13 @@ public final class All extends ConstantFunction  {
      * @return build an <tt>All</tt> constant of given colour
      */
     public static final All getInstance(ColorClass cc) {
-        All f;
-        if ((f = VALUES.get(cc)) == null) 
-            VALUES.put(cc, f = new All(cc)) ;
-        
-        return f;
+        synchronized (VALUES) {
+            All f;
+            if ((f = VALUES.get(cc)) == null) 
+                VALUES.put(cc, f = new All(cc)) ;
+
+            return f;
+        }
     }
         
     /**
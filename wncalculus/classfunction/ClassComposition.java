@@ -4,6 +4,8 @@ import java.util.*;
 import wncalculus.expr.*;
 import wncalculus.color.ColorClass;
 import wncalculus.logexpr.LogComposition;
+import wncalculus.util.BoundedCache;
+import wncalculus.util.ComplexKey;
 
 /**
  *
@@ -14,6 +16,18 @@ import wncalculus.logexpr.LogComposition;
 public final class ClassComposition extends SetFunction implements LogComposition<SetFunction> {
     
    private final SetFunction left, right;
+   // the normal forms of solved compositions, keyed by the operands
+   private static final BoundedCache<ComplexKey, SetFunction> CACHE = new BoundedCache<>("class-function compositions", 4096);
+   // the cached outcome of compositions which cannot be solved (the cache doesn't hold null values)
+   private static final SetFunction UNSOLVED = new ClassComposition(null, null);
+   
+    /**
+     * @return the cache of composition outcomes, that can be used to set its capacity (zero disables it),
+     * to clear it, and to get its metrics; the cache never needs invalidation, since terms are immutable
+     */
+    public static BoundedCache<ComplexKey, SetFunction> cache() {
+        return CACHE;
+    }
     
     /** creates a new basic-composition between class-functions after having possibly checked that the left one is unary
      * @param left the left operand
@@ -74,14 +88,17 @@ public final class ClassComposition extends SetFunction implements LogCompositio
 
     @Override
     public SetFunction specSimplify() {
-        SetFunction compres;
         Interval rcard = this.right.card(); 
         if (rcard != null && rcard.ub() == 0) 
-            compres = Empty.getInstance(getSort());
-        else if ( (compres = this.left.baseCompose(this.right) ) == null) 
-            compres = this;
+            return Empty.getInstance(getSort());
+        
+        SetFunction compres = CACHE.get(new ComplexKey(this.left, this.right), k -> {
+            SetFunction res = this.left.baseCompose(this.right);
+            
+            return res == null ? UNSOLVED : res instanceof ClassComposition ? res : (SetFunction) res.normalize();
+        });
         
-        return compres;
+        return compres == UNSOLVED ? this : compres;
     }
 
     @Override
@@ -137,6 +154,12 @@ public final class ClassComposition extends SetFunction implements LogCompositio
         return LogComposition.super.toStringOp();
     }
 
+    
+    @Override
+    public void print(Printer p) {
+        LogComposition.super.printOp(p);
+    }
+
     @Override
     public SetFunction copy(ColorClass newcc) {
         return new ClassComposition(this.left.copy(newcc), this.right.copy(newcc));
@@ -5,6 +5,7 @@ import wncalculus.color.*;
 import java.util.*;
 import wncalculus.guard.Equality;
 import wncalculus.guard.Guard;
+import wncalculus.guard.Substitution;
 
 /**
  * This interface represents the root of the hierarchy describing
@@ -124,6 +125,19 @@ public interface ClassFunction extends SingleSortExpr {
     default <E extends ClassFunction> E replace (Equality eq){
         return cast();
     }
+    
+    /**
+     * replaces projection symbols in @code{this} function according to the specified
+     * substitution (i.e., to a set of equalities), in just one traversal
+     * @param <E> the function's type
+     * @param s a substitution
+     * @return a function corresponding to <tt>this</tt>, modulo a replacement of symbols,
+     * according to the substitution
+     * default implementation - to override if needed
+     */
+    default <E extends ClassFunction> E replace (Substitution s){
+        return cast();
+    }
       
     
    /** destructively replaces in the specified list of functions (assumed homogeneous)
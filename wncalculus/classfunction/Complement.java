@@ -54,9 +54,9 @@ import wncalculus.expr.Interval;
         if (mycard != null) {
             Interval in = getConstraint();
             if ( mycard.equals(in) ) 
-                res = new Interval(0,0);
+                res = Interval.of(0,0);
             else if (mycard.singleValue()) 
-                res = in.unbounded() ? new Interval(in.lb()- mycard.lb() ) : new Interval(in.lb()- mycard.lb(), in.ub()- mycard.ub());
+                res = Interval.of(Interval.minus(in.packed(), mycard.lb()));
         }
         
         return res;
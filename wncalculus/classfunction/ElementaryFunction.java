@@ -1,6 +1,6 @@
 package wncalculus.classfunction;
 
-
+import java.util.concurrent.atomic.AtomicInteger;
 import wncalculus.color.ColorClass;
 import wncalculus.expr.Domain;
 import wncalculus.expr.Sort;
@@ -16,7 +16,10 @@ import wncalculus.wnbag.LinearComb;
  */
 public abstract class ElementaryFunction extends SetFunction  {  
     
+    private static final AtomicInteger IDS = new AtomicInteger();
+    
     private final ColorClass cc;  
+    private final int id; // the creation order (elementary functions are unique)
     
     /**
      * build an elementary class-function
@@ -25,6 +28,15 @@ public abstract class ElementaryFunction extends SetFunction  {
     protected ElementaryFunction (ColorClass cc) {
         super(true); //already simplified
         this.cc = cc;
+        this.id = IDS.getAndIncrement();
+    }
+    
+    /**
+     * @return a unique identifier of <tt>this</tt> function, reflecting the creation order
+     * (it is used to sort the terms of linear combinations)
+     */
+    public final int id() {
+        return this.id;
     }
     
     @Override
@@ -34,7 +46,7 @@ public abstract class ElementaryFunction extends SetFunction  {
     
     @Override
     public final Domain getDomain() {
-        return new Domain(this.cc,1);
+        return Domain.of(this.cc,1);
     }
         
     @Override
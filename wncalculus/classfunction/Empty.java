@@ -20,11 +20,13 @@ public final class Empty extends ConstantFunction  {
      * @return an <tt>Empty</tt> class-function of the specified color
      */
     public static final Empty getInstance(ColorClass cc) {
-        Empty f;
-        if ((f = VALUES.get(cc)) == null) 
-            VALUES.put(cc, f = new Empty(cc)) ;
-        
-        return f;
+        synchronized (VALUES) {
+            Empty f;
+            if ((f = VALUES.get(cc)) == null) 
+                VALUES.put(cc, f = new Empty(cc)) ;
+
+            return f;
+        }
     }
     
     /**
@@ -39,7 +41,7 @@ public final class Empty extends ConstantFunction  {
      */
     @Override
     public Interval card() {
-        return new Interval(0,0);
+        return Interval.of(0,0);
     }
     
    
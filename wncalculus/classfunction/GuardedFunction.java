@@ -6,6 +6,7 @@ import wncalculus.expr.Domain;
 import wncalculus.guard.Guard;
 import wncalculus.expr.GuardedExpr;
 import wncalculus.expr.NonTerminal;
+import wncalculus.expr.Printer;
 
 /**
  * this class defines guarded class-functions
@@ -65,7 +66,7 @@ public final class GuardedFunction implements GuardedExpr<ClassFunction>, ClassF
 
     @Override
     public GuardedFunction copy(ColorClass newcc) {
-        return newcc == getSort() ? this : new GuardedFunction(this.function.copy(newcc),this.guard.clone(new Domain(newcc,1))); 
+        return newcc == getSort() ? this : new GuardedFunction(this.function.copy(newcc),this.guard.clone(Domain.of(newcc,1))); 
     }
 
     @Override
@@ -106,6 +107,12 @@ public final class GuardedFunction implements GuardedExpr<ClassFunction>, ClassF
         return GuardedExpr.super.toStringGuardedExpr();
     }
 
+    
+    @Override
+    public void print(Printer p) {
+        GuardedExpr.super.printGuardedExpr(p);
+    }
+
     @Override
     public ClassFunction build(Guard f, Guard g) {
         return new GuardedFunction(this.function ,g);
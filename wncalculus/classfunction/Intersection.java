@@ -108,9 +108,9 @@ public final class Intersection extends N_aryClassOperator implements AndOp<SetF
             int ub = in.ub(), lb;
             boolean bounded = ! in.unbounded();
             if ( bounded && ub <= k) 
-                this.card = new Interval(0,0); // optimization
+                this.card = Interval.of(0,0); // optimization
             else if ( (lb  = in.lb() ) >= k ) //new: in the previous version the cardinality 0 was equipared to null
-                this.card = bounded ?  new Interval( lb - k , ub - k): new Interval(lb - k);
+                this.card = Interval.of(Interval.minus(in.packed(), k));
         } 
         
         return this.card;
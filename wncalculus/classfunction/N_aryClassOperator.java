@@ -4,7 +4,9 @@ import java.util.*;
 import wncalculus.color.ColorClass;
 import wncalculus.expr.*;
 import wncalculus.guard.Equality;
+import wncalculus.guard.Substitution;
 import wncalculus.logexpr.AndOp;
+import wncalculus.util.SortedArraySet;
 import wncalculus.util.Util;
 
 /**
@@ -13,14 +15,16 @@ import wncalculus.util.Util;
  */
 public abstract class N_aryClassOperator  extends SetFunction implements N_aryOp<SetFunction> {
     
-    private final Set<SetFunction> args;//the (ordered) operand's list
+    private final SortedArraySet<SetFunction> args;//the operand's list (in canonical order)
     // the following fields are for the sake of efficiency
+    private String str;
     private Map<Boolean, Set<ProjectionBased>  > proj_map; //false -> non congruent; true -> congruent 
     private Set<Subcl> subcls;
     
     
     /**
-    * basic constructor
+    * basic constructor: the operands are stored in canonical order
+    * (the set is shared if already canonical)
     * @param functions the list of operands
     * @param check domain-check flag
     * @throws IllegalDomain if the functions' color-classes are different
@@ -28,7 +32,7 @@ public abstract class N_aryClassOperator  extends SetFunction implements N_aryOp
     protected N_aryClassOperator(Set<? extends SetFunction> functions, boolean check) {
         if (check)
             Expressions.checkDomain(functions);
-        this.args = Collections.unmodifiableSet( functions );
+        this.args = SortedArraySet.of(functions, Expressions.STRUCTURAL_ORDER);
         if (this.args.size() < 2) {
            System.err.println("built n-ary class op with less than two operands");
         }
@@ -200,7 +204,18 @@ public abstract class N_aryClassOperator  extends SetFunction implements N_aryOp
      
     @Override
     public final String toString() {
-        return N_aryOp.super.toStringOp();
+        if (this.str == null)
+            this.str = N_aryOp.super.toStringOp();
+        
+        return this.str;
+    }
+    
+    @Override
+    public final void print(Printer p) {
+        if (this.str != null)
+            p.append(this.str);
+        else
+            N_aryOp.super.printOp(p);
     }
     
     @Override
@@ -221,6 +236,13 @@ public abstract class N_aryClassOperator  extends SetFunction implements N_aryOp
         return (SetFunction) buildOp(args_copy);
     }
     
+    @Override
+    public final SetFunction replace (Substitution s) {
+        List<SetFunction> args_copy = new ArrayList<>(getArgs());
+        
+        return s.apply(args_copy) ? (SetFunction) buildOp(args_copy) : this;
+    }
+    
      @Override
      public final SetFunction copy(ColorClass newcc) {
         return buildOp((ClassFunction.copy(this.args, newcc)));
@@ -4,6 +4,7 @@ import wncalculus.expr.*;
 import java.util.*;
 import wncalculus.color.ColorClass;
 import wncalculus.guard.Equality;
+import wncalculus.guard.Substitution;
 import wncalculus.util.ComplexKey;
 import wncalculus.util.Util;
 
@@ -15,7 +16,7 @@ public final class Projection extends ElementaryFunction implements ProjectionBa
     
      private final int index, succ ;//index and successor "argument" of a projection
      
-     private static final Interval CARD =  new Interval(1,1); // the cardinality
+     private static final Interval CARD =  Interval.of(1,1); // the cardinality
      
     /**
      * basic constructor
@@ -50,13 +51,15 @@ public final class Projection extends ElementaryFunction implements ProjectionBa
         if ( cc.ccSize() != 0 ) 
             succ = Util.valueModN(succ , cc.lb()) ;    
         ComplexKey k = new ComplexKey(cc, index, succ);
-        Projection p;
-        if ( (p = VALUES.get(k)) == null) {
-            VALUES.put(k, p = new Projection (index, succ, cc)) ;
-            //Util.checkBuilderOneStep(p, VALUES); //debug
+        synchronized (VALUES) {
+            Projection p;
+            if ( (p = VALUES.get(k)) == null) {
+                VALUES.put(k, p = new Projection (index, succ, cc)) ;
+                //Util.checkBuilderOneStep(p, VALUES); //debug
+            }
+
+            return p;
         }
-   
-        return p;
     }
     
      /**
@@ -154,6 +157,11 @@ public final class Projection extends ElementaryFunction implements ProjectionBa
         return eq.sameIndex() || eq.secondIndex() != getIndex() ? this :  builder(eq.firstIndex(), getSucc() - eq.getSucc(), getSort());
     }
 
+    @Override
+    public Projection replace(Substitution s) {
+        return s.apply(this);
+    }
+
     @Override
     public Projection copy(ColorClass s) {
       return Projection.builder(this.index, this.succ, s); 
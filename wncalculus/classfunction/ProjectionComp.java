@@ -5,6 +5,7 @@ import wncalculus.color.ColorClass;
 import wncalculus.expr.Domain;
 import wncalculus.expr.Interval;
 import wncalculus.guard.Equality;
+import wncalculus.guard.Substitution;
 import wncalculus.util.ComplexKey;
 
 
@@ -39,12 +40,14 @@ public final class ProjectionComp extends SetFunction implements ProjectionBased
         if (cc.isOrdered() && cc.ccSize( ) == 2) 
             return pr.setExp(pr.getSucc() == 0 ? 1 : 0);
         
-        ProjectionComp pc;
         ComplexKey k = new ComplexKey(cc, pr);
-        if ( (pc = VALUES.get(k) ) == null) 
-            VALUES.put(k, pc = new ProjectionComp (pr)) ;
-        
-        return pc;
+        synchronized (VALUES) {
+            ProjectionComp pc;
+            if ( (pc = VALUES.get(k) ) == null) 
+                VALUES.put(k, pc = new ProjectionComp (pr)) ;
+
+            return pc;
+        }
     }
     
     
@@ -74,7 +77,7 @@ public final class ProjectionComp extends SetFunction implements ProjectionBased
     public Interval card() {
         Interval in = getConstraint();
         
-        return in.unbounded() ? new Interval(in.lb() - 1) : new Interval(in.lb() - 1, in.ub()-1);
+        return Interval.of(Interval.minus(in.packed(), 1));
     }
     
            
@@ -116,6 +119,13 @@ public final class ProjectionComp extends SetFunction implements ProjectionBased
         return p == this.pr ? this : factory(p).cast();
     }
     
+    @Override
+    public SetFunction replace(Substitution s) {
+        Projection p = s.apply(this.pr);
+        
+        return p == this.pr ? this : factory(p).cast();
+    }
+    
         
     @Override
     public ProjectionComp setDefaultIndex() {
@@ -60,14 +60,16 @@ public final class Subcl extends ConstantFunction {
                 throw new IllegalArgumentException("inconsistent sub-interval bounds\n");
         }
         else if (ordered)
-            subint = new Interval(1, scsize) ;
+            subint = Interval.of(1, scsize) ;
         
-        Subcl s;
         ComplexKey k = new ComplexKey(cc, i, subint);
-        if ( (s = VALUES.get(k)) == null) 
-            VALUES.put(k, s = new Subcl(i, cc, subint)) ;
-        
-        return s;
+        synchronized (VALUES) {
+            Subcl s;
+            if ( (s = VALUES.get(k)) == null) 
+                VALUES.put(k, s = new Subcl(i, cc, subint)) ;
+
+            return s;
+        }
     }
     
      /**
@@ -115,7 +117,7 @@ public final class Subcl extends ConstantFunction {
     public Interval card() {
         if ( ordered() ) {
             int size = this.subinter.size();
-            return new Interval(size, size);
+            return Interval.of(size, size);
         }
         
         return getSort().getConstraint( this.index );
@@ -2,6 +2,7 @@ package wncalculus.classfunction;
 
 import java.util.Set;
 import wncalculus.expr.UnaryOp;
+import wncalculus.expr.Printer;
 import wncalculus.color.ColorClass;
 
 /**
@@ -48,6 +49,12 @@ public abstract class UnaryClassOp extends SetFunction implements UnaryOp<SetFun
     public final String toString() {
         return UnaryOp.super.toStringOp();
     }
+
+    
+    @Override
+    public final void print(Printer p) {
+        UnaryOp.super.printOp(p);
+    }
     
      @Override
     public final SetFunction copy(ColorClass newcc) {
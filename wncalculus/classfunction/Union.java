@@ -84,19 +84,20 @@ public class Union extends N_aryClassOperator implements OrOp<SetFunction>  {
      * or the cardinality of some terms cannot be computed
      */
     public Interval card() {   
-        Interval card, sum = null;
+        Interval card;
         if ( this.disjoined  ) {
-            sum =  new Interval();
+            long sum = Interval.pack(0, 0); // no intermediate interval is built
             for (SetFunction f : getArgs()) {
-                if ( (card = f.card()) == null ) {
-                     sum = null;
-                     break;
-                 }
-                 sum = sum.sum(card);
+                if ( (card = f.card()) == null ) 
+                     return null;
+                
+                 sum = Interval.sum(sum, card.packed());
             }
+            
+            return Interval.of(sum);
         }
             
-        return sum;
+        return null;
     }
 
      /**
@@ -15,6 +15,11 @@ public final class ColorClass extends Sort implements Color {
     private final Interval[] constraints ;//the constraints associated to the class, default [[2,>]]
     
     private Interval card; // the class cardinality - hashing
+    private int hash; // cache (0 means not computed)
+    private Map<Integer, Map<Boolean, Sort>> splits; //cache: the results of split2
+    private Map<Sort, ColorClass> merges; //cache: the results of merge (possibly null)
+    
+    private static final Map<ColorClass, ColorClass> VALUES = new HashMap<>(); // the registry of (derived) color classes
 
      /**
      base constructor: builds a non split color-class
@@ -142,6 +147,20 @@ public final class ColorClass extends Sort implements Color {
         this (ide, intervals, false  );
     }
 
+    /**
+     * interns a color class, w.r.t. its name, ordering and constraints
+     * @param c a color class
+     * @return the (unique) registered color class equal to the specified one; <tt>c</tt> itself
+     * if it is the first such class
+     */
+    public static ColorClass intern(ColorClass c) {
+        synchronized (VALUES) {
+            ColorClass x = VALUES.putIfAbsent(c, c);
+            
+            return x == null ? c : x;
+        }
+    }
+    
     /**
      *
      * @return <tt>true</tt> if and only if <tt>this</tt> color-class is ordered
@@ -216,7 +235,7 @@ public final class ColorClass extends Sort implements Color {
                     else 
                         ub +=x.ub();
                 }
-                this.card =  unbounded ? new Interval(lb) : new Interval(lb,ub);
+                this.card =  unbounded ? Interval.of(lb) : Interval.of(lb,ub);
             }
         
         return this.card;
@@ -235,14 +254,14 @@ public final class ColorClass extends Sort implements Color {
     /**
      * sets new constraints(s) for this (possibly split) color class
      * @param newconstr the new constraints
-     * @return a copy of this colour class with the new constraints; null if the
+     * @return a copy of this colour class with the new constraints (interned); null if the
      * new constraints is not consistent with the old one in terms of size
      */
     public ColorClass setConstraint(Interval[] newconstr) {
         int l =newconstr.length;
         ColorClass c = null;
         if (l == this.constraints.length)  
-            c = l > 1 ? new ColorClass(name(), newconstr) : new ColorClass(name(), newconstr[0], this.ordered);
+            c = intern(l > 1 ? new ColorClass(name(), newconstr) : new ColorClass(name(), newconstr[0], this.ordered));
         
         return c;
     }
@@ -263,15 +282,14 @@ public final class ColorClass extends Sort implements Color {
      */
     @Override
     public String toString () {
-        String out;
-        if ( isSplit() ) {
-            out = this.constraints[0].toString(name()+'{'+"1"+'}');
-            for (int i =1; i < this.constraints.length ; out += ", " + this.constraints[i].toString(name()+'{'+ ++i +'}')) {}
-        }
-        else
-          out = this.constraints[0].toString(name());  
+        if ( ! isSplit() ) 
+            return this.constraints[0].toString(name());  
+        
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < this.constraints.length ; i++) 
+            out.append(i > 0 ? ", " : "").append(this.constraints[i].toString(name()+'{'+ (i + 1) +'}'));
         
-        return out;
+        return out.toString();
     }
     
     /**
@@ -282,18 +300,21 @@ public final class ColorClass extends Sort implements Color {
     @Override
     public boolean equals (Object o) {
         ColorClass c;
-        return this == o || o instanceof ColorClass && (c = (ColorClass)o).name().equals( name() ) && 
+        return this == o || o instanceof ColorClass && (c = (ColorClass)o).hashCode() == hashCode() && c.name().equals( name() ) && 
                this.ordered == c.ordered && Arrays.equals(this.constraints, c.constraints);
     }
 
     @Override
     public int hashCode() {
-        int hash = 5;
-        hash = 11 * hash + (this.ordered ? 1 : 0);
-        hash = 11 * hash + name().hashCode();
-        hash = 11 * hash + Arrays.deepHashCode(this.constraints);
+        if (this.hash == 0) {
+            int h = 5;
+            h = 11 * h + (this.ordered ? 1 : 0);
+            h = 11 * h + name().hashCode();
+            h = 11 * h + Arrays.deepHashCode(this.constraints);
+            this.hash = h;
+        }
         
-        return hash;
+        return this.hash;
     }
      
        
@@ -302,12 +323,24 @@ public final class ColorClass extends Sort implements Color {
      * in case of a partitioned class, the only possible parametric subclass constraint
      * is split accordingly
      * @param delim a given split-delimiter
-     * @return a boolean map (false := 0, true := 1) to the two color-classes obtained from
+     * @return a boolean map (false := 0, true := 1) to the two (interned) color-classes obtained from
      * splitting the constraints <tt>this</tt> ;
-     * an empty map  no split is performed
+     * an empty map  no split is performed; the (unmodifiable) result is computed once for each delimiter
      */
     @Override
     public Map<Boolean, Sort> split2 (int delim) {
+        synchronized (this) {
+            if (this.splits == null)
+                this.splits = new HashMap<>();
+            Map<Boolean, Sort> res = this.splits.get(delim);
+            if (res == null)
+                this.splits.put(delim, res = computeSplit2(delim));
+            
+            return res;
+        }
+    }
+    
+    private Map<Boolean, Sort> computeSplit2 (int delim) {
         int subcl = 0, offset=0;//index of the non-single-values sub-intv, and marker offset
         if (isSplit()) //the class is partitioned in subclasses
             for (int j =0; j < this.constraints.length; j++) //we seek the non-single-values sub-intv
@@ -338,7 +371,7 @@ public final class ColorClass extends Sort implements Color {
             newarrc = this.constraints.clone();
             newarrc[subcl - 1] = split[1];
             res.put(true, setConstraint(newarrc)); //true stands for "1"
-            return res;
+            return Collections.unmodifiableMap(res);
         }
         throw new IllegalArgumentException("binary splits are assumed!");
     }
@@ -406,9 +439,25 @@ public final class ColorClass extends Sort implements Color {
     }
         
     
+    /**
+     * the result is computed once for each sort
+     */
     @Override
     public ColorClass merge (Sort s) {
-        ColorClass c = (ColorClass) s;
+        synchronized (this) {
+            if (this.merges == null)
+                this.merges = new HashMap<>();
+            if (this.merges.containsKey(s))
+                return this.merges.get(s);
+            
+            ColorClass m = computeMerge((ColorClass) s);
+            this.merges.put(s, m);
+            
+            return m;
+        }
+    }
+    
+    private ColorClass computeMerge (ColorClass c) {
         for (int i = 0; i < this.constraints.length ; i++) {
            Interval m = this.constraints[i].merge(c.constraints[i]);
            if (m != null) { 
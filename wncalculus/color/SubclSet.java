@@ -51,11 +51,11 @@ public final class SubclSet implements Color {
     @Override
     public Interval card() {
         Iterator<? extends Subcl> it = this.subclasses.iterator();
-        Interval res = it.next().card();
+        long res = it.next().card().packed();
         while (it.hasNext())
-            res = res.sum(it.next().card());
+            res = Interval.sum(res, it.next().card().packed());
         
-        return res;
+        return Interval.of(res);
     }
     
     @Override
@@ -105,7 +105,7 @@ public interface CompositionOp<E extends ParametricExpr> extends TwoArgs<E,E> {
                 copy.put(s, e.getValue());
             });
 
-            left_dom  =  new Domain(copy);
+            left_dom  =  Domain.of(copy);
         }
         
         return buildOp(left().clone(left_dom, newcd). cast(), right().clone(newdom, left_dom). cast());
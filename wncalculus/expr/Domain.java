@@ -6,61 +6,126 @@ import wncalculus.util.Util;
 //SI POTREBBE DEFINIRE COME GENERICA RISPETTO AL TIPO DI SORTE
 
 /**
- * this class defines a domain (i.e., Cartesian product) of sorts;
+ * this class defines a domain (i.e., Cartesian product) of sorts; domains are interned
+ * (and compactly stored as sorted arrays of sorts and multiplicities), so they are compared by reference;
  * even if permitted, a domain shouldn't hold different sorts with the same name,
  * for the sake of consistency
  * @author Lorenzo Capra
  */
 public final class Domain {
     
-    private final Map<Sort,Integer > domain; 
+    private static final Map<Key, Domain> VALUES = new HashMap<>(); // the interned domains
+    private static final Comparator<Sort> ORDER = (s1, s2) -> { // the order of sorts in a domain
+        int cmp = s1.compareTo(s2);
+        return cmp != 0 ? cmp : Integer.compare(s1.hashCode(), s2.hashCode());
+    };
     
+    private final Sort[] sorts; // the support, sorted by name
+    private final int[]  mults; // the corresponding multiplicities
+    private final int hash;
+    
+    private Map<Sort,Integer > domain; //cache: the map-view
+    private Map<Map<? extends Sort, ? extends Sort>, Domain> supports; //cache: the results of setSupport
     private String string; //cashing
+    
+    /**
+     * the (content-based) key of an interned domain
+     */
+    private static final class Key {
+        private final Sort[] sorts;
+        private final int[] mults;
+        
+        Key(Sort[] sorts, int[] mults) {
+            this.sorts = sorts;
+            this.mults = mults;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(((Key)o).mults, this.mults) && Arrays.equals(((Key)o).sorts, this.sorts);
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = 59; // the same as the corresponding map's hash-code (plus 59)
+            for (int i = 0; i < this.sorts.length; i++)
+                hash += this.sorts[i].hashCode() ^ this.mults[i];
+            
+            return hash;
+        }
+    }
       
+    private Domain(Key k) {
+        this.sorts = k.sorts;
+        this.mults = k.mults;
+        this.hash  = k.hashCode();
+    }
+    
     /** 
-     * creates a domain from a (non-empty) map of sorts to integers (i.e., a multiset of sorts)
-     * note that, since an hash-map is used, different sorts should have different names
-     * to avoid any confusion/incongruence (no check is done aboout that)
-     * @param sm an hash-map of sorts to integers
+     * creates a domain from a (non-empty) map of sorts to integers (i.e., a multiset of sorts);
+     * domains are interned, so that equal domains are the same object
+     * different sorts should have different names to avoid any confusion/incongruence
+     * (no check is done aboout that)
+     * @param sm a map of sorts to integers
+     * @return the corresponding (unique) domain
      */
-    public Domain(HashMap<? extends Sort,Integer> sm) {
+    public static Domain of(Map<? extends Sort,Integer> sm) {
         if (sm.isEmpty())
             throw new IllegalDomain("you cannot build an empty domain!");
         
-        this.domain = Collections.unmodifiableMap(sm); //this cast is just syntactical
+        final int n = sm.size();
+        Sort[] sorts = sm.keySet().toArray(new Sort[n]);
+        Arrays.sort(sorts, ORDER);
+        int[] mults = new int[n];
+        for (int i = 0; i < n; i++)
+            mults[i] = sm.get(sorts[i]);
+        
+        return intern(new Key(sorts, mults));
+    }
+    
+    private static Domain intern(Key k) {
+        synchronized (VALUES) {
+            Domain d = VALUES.get(k);
+            if (d == null)
+                VALUES.put(k, d = new Domain(k));
+            
+            return d;
+        }
     }
     
     /**
      * build a single-sort domain
      * @param s the domain's sort
      * @param k the sort mult
+     * @return the corresponding (unique) domain
      */
-    public Domain(Sort s, int k) {
-        this(Util.singleMap(s,k));
+    public static Domain of(Sort s, int k) {
+        return intern(new Key(new Sort[] {s}, new int[] {k}));
     }
     
     /** 
      * creates a domain from a list of sorts
      * @param sortlist a list of sorts
+     * @return the corresponding (unique) domain
      */
-    public Domain(List<? extends Sort> sortlist)  {
-        this (Util.asMap(sortlist));
+    public static Domain of(List<? extends Sort> sortlist)  {
+        return of (Util.asMap(sortlist));
     }
     
     /**
      * creates a domain from an arbitrary number of sorts
      * @param args a var-args of sorts
+     * @return the corresponding (unique) domain
      */
-    public Domain (Sort ... args) {
-        this(Arrays.asList(args));
+    public static Domain of (Sort ... args) {
+        return of(Arrays.asList(args));
     }
                 
     /**
      * @return the domain's support, i.e., the set of sorts composing the domain
-     * (actually a @see {SortedSet}) 
      */
     public Set<Sort> support () {
-        return  this.domain.keySet();
+        return  map().keySet();
     }
     
     /**
@@ -68,7 +133,7 @@ public final class Domain {
      * @return the domain's size, i.e., the size of its support  
      */
     public int size() {
-        return this.domain.size();
+        return this.sorts.length;
     }
     
     /**
@@ -76,7 +141,23 @@ public final class Domain {
      * @return the multiplicity of the sort; 0 if the sort is not mapped
      */
     public int mult (Sort sort) {
-        return this.domain.getOrDefault(sort, 0);
+        int i = indexOf(sort);
+        
+        return i < 0 ? 0 : this.mults[i];
+    }
+    
+    /**
+     * @return the position of a sort in the support; a negative value if it is not mapped
+     */
+    private int indexOf(Sort sort) {
+        for (int i = 0; i < this.sorts.length; i++)
+            if (this.sorts[i] == sort)
+                return i;
+        for (int i = 0; i < this.sorts.length; i++)
+            if (this.sorts[i].equals(sort))
+                return i;
+        
+        return -1;
     }
     
     /**
@@ -85,7 +166,7 @@ public final class Domain {
      * @return the corresponding sort; <tt>null</tt> if no sort with thhat name is mapped
      */
     public Sort sort (String sortname) {
-        for ( Sort s : this.domain.keySet() ) 
+        for ( Sort s : this.sorts ) 
             if (s.name().equals(sortname))
                 return s;
         
@@ -103,14 +184,26 @@ public final class Domain {
      * assigned the specified multiplicity
      */ 
     public Domain set(Sort s, int mult) {
-         HashMap<Sort, Integer> copy = new HashMap<>(this.domain);
-         copy.put(s, mult);
+        int i = indexOf(s);
+        if (i >= 0 && this.mults[i] == mult)
+            return this;
+        
+        if (i >= 0) {
+            int[] mults = this.mults.clone();
+            mults[i] = mult;
+            
+            return intern(new Key(this.sorts, mults));
+        }
+        
+        HashMap<Sort, Integer> copy = new HashMap<>(map());
+        copy.put(s, mult);
          
-         return new Domain(copy);
+        return of(copy);
     }
        
     /**
-     * replaces <tt>this</tt> domain's sorts with those specified by the map, if any  
+     * replaces <tt>this</tt> domain's sorts with those specified by the map, if any;
+     * the result is computed once for each map
      * @param sort_map the map between old and new sorts
      * @return the domain resulting from the merge of <tt>this</tt> domain with the given new sorts;
      * <tt>this</tt> if the specified map is empty
@@ -118,14 +211,21 @@ public final class Domain {
     public Domain setSupport (Map<? extends Sort, ? extends Sort> sort_map) {
         if (sort_map.isEmpty())
             return this;
-        else {
-            HashMap<Sort,Integer > copy = new HashMap<>();
-            this.domain.entrySet().forEach (e -> {
-                Sort k = e.getKey(), v = sort_map.get(k); //old and new split sort
-                copy.put(v != null ? v : k, e.getValue());
-            });
-
-            return new Domain(copy);
+        
+        synchronized (this) {
+            if (this.supports == null)
+                this.supports = new HashMap<>();
+            Domain d = this.supports.get(sort_map);
+            if (d == null) {
+                HashMap<Sort,Integer > copy = new HashMap<>();
+                for (int i = 0; i < this.sorts.length; i++) {
+                    Sort k = this.sorts[i], v = sort_map.get(k); //old and new split sort
+                    copy.put(v != null ? v : k, this.mults[i]);
+                }
+                this.supports.put(new HashMap<>(sort_map), d = of(copy));
+            }
+            
+            return d;
         }
     }
     
@@ -139,32 +239,50 @@ public final class Domain {
                 copy.put(v != null ? v : k, e.getValue());
             });
 
-            return new Domain(copy);
+            return Domain.of(copy);
         }
     }*/
     
+    /**
+     * domains are interned, so equality is identity
+     */
     @Override
     public boolean equals (Object o) {
-        return this == o || o instanceof Domain && ((Domain)o).domain.equals(this.domain);
+        return this == o;
     }
 
     @Override
     public int hashCode() {
-        return 59 + Objects.hashCode(this.domain);
+        return this.hash;
     }
     
    
     /** 
-     * @return a map-view of this domain 
+     * @return a map-view of this domain (sorted by sorts' names)
      */
     public Map<? extends Sort,Integer> asMap() {
+        return map();
+    }
+    
+    private Map<Sort,Integer> map() {
+        if (this.domain == null) {
+            LinkedHashMap<Sort,Integer> m = new LinkedHashMap<>();
+            for (int i = 0; i < this.sorts.length; i++)
+                m.put(this.sorts[i], this.mults[i]);
+            this.domain = Collections.unmodifiableMap(m);
+        }
+        
         return this.domain;
     }
             
     @Override
     public String toString() {
-       if (this.string == null)
-           this.string = new TreeMap<>(this.domain).toString();
+       if (this.string == null) {
+           StringBuilder sb = new StringBuilder("{");
+           for (int i = 0; i < this.sorts.length; i++)
+               sb.append(i > 0 ? ", " : "").append(this.sorts[i]).append('=').append(this.mults[i]);
+           this.string = sb.append('}').toString();
+       }
        
        return this.string;
     }
@@ -175,7 +293,8 @@ public final class Domain {
      */
     public StringBuilder names() {
         StringBuilder s = new StringBuilder("@");
-        new TreeMap<>(this.domain).entrySet().forEach( x -> { s.append(x.getKey().name()).append('^').append(x.getValue()).append(','); });
+        for (int i = 0; i < this.sorts.length; i++)
+            s.append(this.sorts[i].name()).append('^').append(this.mults[i]).append(',');
         s.deleteCharAt(s.length()-1);
         
         return s;
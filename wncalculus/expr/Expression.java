@@ -194,6 +194,16 @@ public interface Expression {
         return this +", "+ getDomain();
     }
     
+    /**
+     * writes the textual form of <tt>this</tt> expression on a printer; it must be consistent with
+     * <tt>toString</tt>, by default it is <tt>toString</tt> (composite expressions should override it,
+     * printing their operands directly)
+     * @param p a printer
+     */
+    default void print(Printer p) {
+        p.append(toString());
+    }
+    
     /**
      * @return the "null" expression for <tt>this</tt> language, if any;
      * <tt>null</tt> if there is no null expression
@@ -1,6 +1,14 @@
 package wncalculus.expr;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import wncalculus.bagexpr.Bag;
+import wncalculus.classfunction.*;
+import wncalculus.guard.*;
+import wncalculus.tuple.AbstractTuple;
+import wncalculus.util.IntMap;
 import wncalculus.util.Util;
 
 /**
@@ -10,6 +18,191 @@ import wncalculus.util.Util;
  */
 public class Expressions {
     
+    /* the number of operands from which they are normalized in parallel
+       (by default parallelism is disabled) */
+    private static volatile int parallel_threshold = Integer.MAX_VALUE;
+    
+    /**
+     * sets the number of operands (of n-ary operators and bags) from which their normalization
+     * is split across the common fork/join pool; below it operands are normalized sequentially
+     * @param threshold the parallel threshold (a value less than two is meant as two)
+     */
+    public static void setParallelThreshold(int threshold) {
+        parallel_threshold = Math.max(2, threshold);
+    }
+    
+    /**
+     * disables the parallel normalization of operands
+     */
+    public static void setSequential() {
+        parallel_threshold = Integer.MAX_VALUE;
+    }
+    
+    /**
+     * @return the number of operands from which they are normalized in parallel
+     */
+    public static int parallelThreshold() {
+        return parallel_threshold;
+    }
+    
+    /**
+     * normalizes a collection of operands, in parallel if their number reaches the parallel threshold;
+     * the normalization stops as soon as an operand's normal form is equal to a given term
+     * (e.g., the null expression of an operator)
+     * @param args a collection of operands
+     * @param stop the term stopping the normalization (<tt>null</tt> means no such term)
+     * @return the operands' normal forms, in the collection's iteration order;
+     * <tt>null</tt> if any normal form is equal to <tt>stop</tt>
+     */
+    public static Expression[] normalizeAll(Collection<? extends Expression> args, Expression stop) {
+        Expression[] ops = args.toArray(new Expression[args.size()]);
+        if (ops.length >= parallel_threshold) {
+            AtomicBoolean stopped = new AtomicBoolean();
+            ForkJoinPool.commonPool().invoke(new Normalization(ops, 0, ops.length, stop, stopped));
+            return stopped.get() ? null : ops;
+        }
+        
+        for (int i = 0; i < ops.length; i++) 
+            if ((ops[i] = ops[i].normalize()).equals(stop))
+                return null;
+        
+        return ops;
+    }
+    
+    /**
+     * fork/join task normalizing (in place) a range of operands; the shared flag is used both
+     * to signal that a stop term has been found and to cancel the pending sub-tasks
+     */
+    private static final class Normalization extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final Expression[] ops;
+        private final int from, to; // the range [from, to)
+        private final Expression stop;
+        private final AtomicBoolean stopped;
+        
+        Normalization(Expression[] ops, int from, int to, Expression stop, AtomicBoolean stopped) {
+            this.ops  = ops;
+            this.from = from;
+            this.to   = to;
+            this.stop = stop;
+            this.stopped = stopped;
+        }
+        
+        @Override
+        protected void compute() {
+            if (this.stopped.get())
+                return;
+            
+            if (this.to - this.from > 1) { // operands are heavy, so each one is a task
+                int mid = (this.from + this.to) >>> 1;
+                invokeAll(new Normalization(this.ops, this.from, mid, this.stop, this.stopped), new Normalization(this.ops, mid, this.to, this.stop, this.stopped));
+            }
+            else if ((this.ops[this.from] = this.ops[this.from].normalize()).equals(this.stop))
+                this.stopped.set(true);
+        }
+    }
+    
+    /**
+     * the structural order of class-functions and guards, which is used to store the operands
+     * of n-ary operators (see <tt>SortedArraySet</tt>): terms are compared by kind, then by their
+     * fields and operands, so that the order depends neither on hashing nor on the terms' textual
+     * description; it is a pre-order (equal terms are equivalent, terms of other kinds are all equivalent)
+     */
+    public static final Comparator<Expression> STRUCTURAL_ORDER = Expressions::compare;
+    
+    // the kinds of terms, in the structural order
+    private static final List<Class<?>> KINDS = Arrays.asList(Projection.class, ProjectionComp.class, Successor.class,
+            Subcl.class, All.class, Empty.class, Complement.class, Intersection.class, Union.class, ClassComposition.class,
+            GuardedFunction.class, True.class, False.class, Equality.class, Membership.class, Neg.class, And.class, Or.class);
+    
+    /**
+     * @return the rank of a term's kind in the structural order (terms of other kinds come last)
+     */
+    private static int kind(Expression e) {
+        int k = KINDS.indexOf(e.getClass());
+        
+        return k < 0 ? KINDS.size() : k;
+    }
+    
+    /**
+     * compares two terms w.r.t. the structural order
+     */
+    private static int compare(Expression e1, Expression e2) {
+        if (e1 == e2)
+            return 0;
+        
+        int k = kind(e1), cmp = Integer.compare(k, kind(e2));
+        if (cmp != 0 || k == KINDS.size())
+            return cmp;
+        
+        Class<?> c = KINDS.get(k);
+        if (c == Projection.class) {
+            Projection p1 = (Projection) e1, p2 = (Projection) e2;
+            if ((cmp = p1.getSort().compareTo(p2.getSort())) != 0 || (cmp = p1.getIndex().compareTo(p2.getIndex())) != 0)
+                return cmp;
+            
+            return p1.getSucc().compareTo(p2.getSucc());
+        }
+        if (c == Subcl.class) {
+            Subcl s1 = (Subcl) e1, s2 = (Subcl) e2;
+            
+            return (cmp = s1.getSort().compareTo(s2.getSort())) != 0 ? cmp : Integer.compare(s1.index(), s2.index());
+        }
+        if (c == All.class || c == Empty.class)
+            return ((ClassFunction) e1).getSort().compareTo(((ClassFunction) e2).getSort());
+        
+        if (c == Successor.class) {
+            Successor s1 = (Successor) e1, s2 = (Successor) e2;
+            
+            return (cmp = Integer.compare(s1.getExp(), s2.getExp())) != 0 ? cmp : compare(s1.getArg(), s2.getArg());
+        }
+        if (c == ProjectionComp.class)
+            return compare(((ProjectionComp) e1).getArg(), ((ProjectionComp) e2).getArg());
+        
+        if (c == Complement.class || c == Neg.class)
+            return compare(((SingleArg<?,?>) e1).getArg(), ((SingleArg<?,?>) e2).getArg());
+        
+        if (c == ClassComposition.class) {
+            ClassComposition c1 = (ClassComposition) e1, c2 = (ClassComposition) e2;
+            
+            return (cmp = compare(c1.left(), c2.left())) != 0 ? cmp : compare(c1.right(), c2.right());
+        }
+        if (c == GuardedFunction.class) {
+            GuardedFunction g1 = (GuardedFunction) e1, g2 = (GuardedFunction) e2;
+            
+            return (cmp = compare(g1.guard(), g2.guard())) != 0 ? cmp : compare(g1.expr(), g2.expr());
+        }
+        if (c == True.class || c == False.class)
+            return compare(((Guard) e1).getDomain(), ((Guard) e2).getDomain());
+        
+        if (c == Equality.class || c == Membership.class) {
+            ElementaryGuard g1 = (ElementaryGuard) e1, g2 = (ElementaryGuard) e2;
+            if ((cmp = compare(g1.getArg1(), g2.getArg1())) != 0 || (cmp = compare(g1.getArg2(), g2.getArg2())) != 0
+                    || (cmp = g1.sign().compareTo(g2.sign())) != 0)
+                return cmp;
+            
+            return compare(g1.getDomain(), g2.getDomain());
+        }
+        // n-ary operators: their operands are compared in canonical order
+        Collection<? extends Expression> a1 = ((MultiArgs<?,?>) e1).getArgs(), a2 = ((MultiArgs<?,?>) e2).getArgs();
+        if ((cmp = Integer.compare(a1.size(), a2.size())) != 0)
+            return cmp;
+        
+        for (Iterator<? extends Expression> i1 = a1.iterator(), i2 = a2.iterator(); i1.hasNext() && cmp == 0; )
+            cmp = compare(i1.next(), i2.next());
+        
+        return cmp;
+    }
+    
+    /**
+     * compares two domains by their (structural) hash-code, so that different domains may be equivalent
+     */
+    private static int compare(Domain d1, Domain d2) {
+        return d1.equals(d2) ? 0 : Integer.compare(d1.hashCode(), d2.hashCode());
+    }
+    
     /**
      * provides a detailed textual description for a collection of logical terms
      * @param c the terms' collection
@@ -37,61 +230,244 @@ public class Expressions {
 
      /**
      * merges syntactically identical expressions in the given collection whose color
-     * constraints can be folded, operating in a destructive way
+     * constraints can be folded, operating in a destructive way;
+     * terms are grouped by their sort-erased structure (see <tt>Shape</tt>), then the constraints
+     * of each group are folded by an interval-union sweep (see <tt>foldConstraints</tt>)
      * @param <E> the type of expressions
      * @param terms a list of terms
      */
     public static <E extends ParametricExpr> void mergeResults (Set<E> terms) {
         if (terms.size() > 1) { 
-            HashMap<String, Collection<E>> map = new HashMap<>(); //map between strings and corresponding terms
-            terms.forEach(t -> { Util.addElem( t.toString(),t, map, List.class); });
-            for (Map.Entry<String, Collection<E>> e : map.entrySet()) {
-                List<E> l =  (List<E>) e.getValue(); //list of "identical" terms
-                if (l.size() > 1) {
-                   HashMap<E,List<Sort>> sorts_map = new HashMap<>(); //map between terms and their sorts (the list are ordered)
-                   l.forEach( t -> { sorts_map.put(t, t.getSorts()); });
-                   Comparator<E> tcomp = (t1, t2) -> { //comparator for ordered list of sorts (of the same size)
-                       int cmp = 0;
-                       List<Sort> l1 = sorts_map.get(t1), l2 = sorts_map.get(t2); //l1 and l2 should have the same size
-                       for (int i = 0; i < l1.size() && (cmp = l1.get(i).compareTo(l2.get(i))) == 0 ; ++i) {}
-                       
-                       return cmp;
-                   };
-                   Collections.sort(l, tcomp); // "identical" terms have been ordered w.r.t. their sorts
-                   ListIterator<E> ite = l.listIterator();
-                   for (E p = ite.next() , c; ite.hasNext() ; p = l.get(ite.previousIndex())) {
-                       Map<Sort,Sort> glued = mergeConstraint(sorts_map.get(p), sorts_map.get(c = ite.next()));
-                       if ( glued != null ) {
-                           E cp = p.clone(p.getDomain().setSupport(glued), p.getCodomain().setSupport(glued)). cast();
-                           ite.set(cp);
-                           sorts_map.put(cp, cp.getSorts());
-                           terms.add(cp);
-                           terms.remove(p);
-                           terms.remove(c);
-                       }
-                   }
+            Shape shape = new Shape();
+            HashMap<Integer, List<List<E>>> map = new HashMap<>(); //map between fingerprints and corresponding groups of "identical" terms
+            terms.forEach(t -> {
+                List<List<E>> groups = map.computeIfAbsent(shape.hash(t), h -> new ArrayList<>(1));
+                List<E> g = null;
+                for (Iterator<List<E>> ite = groups.iterator(); g == null && ite.hasNext() ; ) {
+                    List<E> x = ite.next();
+                    if (shape.same(x.get(0), t))
+                        g = x;
+                }
+                if (g == null) 
+                    groups.add(g = new ArrayList<>());
+                g.add(t);
+            });
+            map.values().forEach(groups -> { 
+                groups.stream().filter(g -> g.size() > 1).forEach(g -> { foldConstraints(g, terms); }); 
+            });
+        }
+    }
+    
+    /**
+     * folds the constraints of a group of "identical" terms, i.e., replaces terms differing
+     * only in one sort (whose constraints are adjacent) by a single term;
+     * for each position of the (ordered) sort lists, terms are bucketed by the sorts in the other positions,
+     * each bucket is sorted w.r.t. the sort in that position, then the sorts are merged in one sweep;
+     * the positions are swept again as long as some merge is done
+     * @param group a list of "identical" terms
+     * @param terms the collection including the terms, updated accordingly
+     */
+    private static <E extends ParametricExpr> void foldConstraints (List<E> group, Set<E> terms) {
+        HashMap<E,List<Sort>> sorts_map = new HashMap<>(); //map between terms and their sorts (the list are ordered)
+        group.forEach( t -> { sorts_map.put(t, t.getSorts()); });
+        final int arity = sorts_map.get(group.get(0)).size();
+        for (boolean merged = true; merged && group.size() > 1; ) {
+            merged = false;
+            for (int i = 0; i < arity && group.size() > 1; i++) {
+                final int pos = i;
+                HashMap<List<Object>, List<E>> buckets = new HashMap<>(); //terms differing at most in position i
+                for (E t : group) {
+                    List<Object> key = new ArrayList<>(sorts_map.get(t));
+                    if (key.size() != arity)
+                        continue; // cannot be the case for "identical" terms
+                    
+                    key.set(i, ((Sort) key.get(i)).name());
+                    buckets.computeIfAbsent(key, x -> new ArrayList<>()).add(t);
+                }
+                List<E> next = new ArrayList<>(group.size());
+                for (List<E> b : buckets.values()) {
+                    if (b.size() > 1) {
+                        b.sort((t1, t2) -> sorts_map.get(t1).get(pos).compareTo(sorts_map.get(t2).get(pos)));
+                        E first = b.get(0);
+                        Sort run = sorts_map.get(first).get(pos);
+                        for (int j = 1, k = 0; j <= b.size() ; j++) { // [k,j) is the current run
+                            Sort m = j < b.size() ? run.merge(sorts_map.get(b.get(j)).get(pos)) : null;
+                            if (m != null)
+                                run = m;
+                            else {
+                                if (j - k > 1) { // the terms of the run are replaced by a single term
+                                    Map<Sort,Sort> glued = Collections.singletonMap(sorts_map.get(first).get(pos), run);
+                                    E cp = first.clone(first.getDomain().setSupport(glued), first.getCodomain().setSupport(glued)). cast();
+                                    terms.removeAll(b.subList(k, j));
+                                    terms.add(cp);
+                                    sorts_map.put(cp, cp.getSorts());
+                                    next.add(cp);
+                                    merged = true;
+                                }
+                                else
+                                    next.add(first);
+                                if (j < b.size()) {
+                                    first = b.get(k = j);
+                                    run = sorts_map.get(first).get(pos);
+                                }
+                            }
+                        }
+                    }
+                    else
+                        next.addAll(b);
                 }
+                group = next;
             }
         }
     }
     
-    /** try to "merge" two constraints (i.e., two ordered lists of corresponding sorts)
-     *  of two terms of the same arity 
-     *  @return a map between the old sort of the first list and the sort resulting from merge, if any;
-     *  <tt>null</tt> if no merge is done
-    */
-    private static  Map<Sort,Sort>  mergeConstraint(List<? extends Sort> c1, List<? extends Sort> c2) {
-        Map<Sort,Sort> old_to_merge = null;
-        Sort merge_sort = null, sort1, sort2;
-        for (int i = 0; i < c1.size() ; i++) 
-            if ( ! (sort1 = c1.get(i)). equals(sort2 = c2.get(i)) ) { 
-                if (merge_sort != null || (merge_sort = sort1.merge(sort2)) == null)  // either the sorts are not "foldable" or two "foldable" sorts have been already found
-                  return null;
+    /**
+     * this class computes sort-erased structural fingerprints of terms, so that terms may be grouped
+     * without building their textual form: a fingerprint depends on the terms' structure (operators,
+     * order of operands, guards) and on their leaves, whose (short) textual form mentions just sort names;
+     * fingerprints of shared (e.g., interned) sub-terms are computed once
+     */
+    private static final class Shape {
+        
+        private final IdentityHashMap<Object,Integer> hashes = new IdentityHashMap<>(); //cache
+        
+        /**
+         * @return the fingerprint of a term (possibly <tt>null</tt>)
+         */
+        int hash(Object e) {
+            if (e == null)
+                return 0;
+            
+            Integer h = this.hashes.get(e);
+            if (h == null) {
+                int x = e.getClass().getName().hashCode();
+                if (e instanceof AbstractTuple) {
+                    AbstractTuple<?,?> t = (AbstractTuple<?,?>) e;
+                    x = 31 * (31 * (31 * x + ordered(t.getComponents())) + hash(t.filter())) + hash(t.guard());
+                }
+                else if (e instanceof GuardedExpr) {
+                    GuardedExpr<?> g = (GuardedExpr<?>) e;
+                    x = 31 * (31 * (31 * x + hash(g.filter())) + hash(g.expr())) + hash(g.guard());
+                }
+                else if (e instanceof MultiArgs) {
+                    Collection<?> args = ((MultiArgs<?,?>) e).getArgs();
+                    x = 31 * x + (args instanceof List ? ordered((List<?>) args) : unordered(args));
+                }
+                else if (e instanceof SingleArg) 
+                    x = 31 * x + hash(((SingleArg<?,?>) e).getArg());
+                else if (e instanceof Bag) {
+                    int y = 0;
+                    for (IntMap<?>.Cursor c = ((Bag<?>) e).asIntMap().cursor(); c.advance(); )
+                        y += 31 * hash(c.key()) ^ c.value();
+                    x = 31 * x + y;
+                }
+                else // a leaf
+                    x = e.toString().hashCode();
+                this.hashes.put(e, h = x);
+            }
+            
+            return h;
+        }
+        
+        private int ordered(List<?> l) {
+            int x = 1;
+            for (Object o : l)
+                x = 31 * x + hash(o);
+            
+            return x;
+        }
+        
+        private int unordered(Collection<?> c) {
+            int x = c.size();
+            for (Object o : c)
+                x += hash(o);
+            
+            return x;
+        }
+        
+        /**
+         * @return <tt>true</tt> if and only if two terms (possibly <tt>null</tt>) have the same sort-erased structure
+         */
+        boolean same(Object e1, Object e2) {
+            if (e1 == e2)
+                return true;
+            
+            if (e1 == null || e2 == null || e1.getClass() != e2.getClass() || hash(e1) != hash(e2))
+                return false;
+            
+            if (e1 instanceof AbstractTuple) {
+                AbstractTuple<?,?> t1 = (AbstractTuple<?,?>) e1, t2 = (AbstractTuple<?,?>) e2;
+                return same(t1.filter(), t2.filter()) && same(t1.guard(), t2.guard()) && sameList(t1.getComponents(), t2.getComponents());
+            }
+            
+            if (e1 instanceof GuardedExpr) {
+                GuardedExpr<?> g1 = (GuardedExpr<?>) e1, g2 = (GuardedExpr<?>) e2;
+                return same(g1.filter(), g2.filter()) && same(g1.guard(), g2.guard()) && same(g1.expr(), g2.expr());
+            }
+            
+            if (e1 instanceof MultiArgs) {
+                Collection<?> a1 = ((MultiArgs<?,?>) e1).getArgs(), a2 = ((MultiArgs<?,?>) e2).getArgs();
+                return a1 instanceof List && a2 instanceof List ? sameList((List<?>) a1, (List<?>) a2) : sameColl(a1, a2);
+            }
+            
+            if (e1 instanceof SingleArg) 
+                return same(((SingleArg<?,?>) e1).getArg(), ((SingleArg<?,?>) e2).getArg());
+            
+            if (e1 instanceof Bag) {
+                IntMap<?> m1 = ((Bag<?>) e1).asIntMap(), m2 = ((Bag<?>) e2).asIntMap();
+                if (m1.size() != m2.size())
+                    return false;
                 
-                old_to_merge = Collections.singletonMap(sort1, merge_sort);
+                List<Object> rest = new ArrayList<>(m2.keySet());
+                for (IntMap<?>.Cursor c = m1.cursor(); c.advance(); ) 
+                    if (! removeSame(c.key(), c.value(), rest, m2))
+                        return false;
+                
+                return true;
             }
+            
+            return e1.toString().equals(e2.toString()); // leaves
+        }
+        
+        private boolean sameList(List<?> l1, List<?> l2) {
+            if (l1.size() != l2.size())
+                return false;
+            
+            for (int i = 0; i < l1.size(); i++)
+                if (! same(l1.get(i), l2.get(i)))
+                    return false;
+            
+            return true;
+        }
+        
+        private boolean sameColl(Collection<?> c1, Collection<?> c2) {
+            if (c1.size() != c2.size())
+                return false;
+            
+            List<Object> rest = new ArrayList<>(c2);
+            for (Object o : c1) 
+                if (! removeSame(o, 0, rest, null))
+                    return false;
+            
+            return true;
+        }
         
-        return old_to_merge;
+        /**
+         * removes from a list a term with the same structure as a given one (and the same
+         * multiplicity, if a bag's map is specified)
+         * @return <tt>true</tt> if and only if such a term is found
+         */
+        private boolean removeSame(Object o, int k, List<Object> rest, IntMap<?> m) {
+            for (Iterator<Object> ite = rest.iterator(); ite.hasNext(); ) {
+                Object x = ite.next();
+                if ((m == null || m.getInt(x) == k) && same(o, x)) {
+                    ite.remove();
+                    return true;
+                }
+            }
+            
+            return false;
+        }
     }
 
     
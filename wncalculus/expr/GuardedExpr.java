@@ -129,7 +129,19 @@ public interface GuardedExpr<E extends Expression> extends Expression {
      * @return the textual representation of a guarded expression
      */
     default String toStringGuardedExpr() {
-        return (filter() == null ? "" : "[" + filter() + ']')  + expr() + (guard() == null ? "" : "[" +guard() + ']');
+        return Printer.render(this::printGuardedExpr);
+    }
+    
+    /**
+     * prints the textual representation of a guarded expression
+     * @param p a printer
+     */
+    default void printGuardedExpr(Printer p) {
+        if (filter() != null)
+            p.append('[').print(filter()).append(']');
+        p.print(expr());
+        if (guard() != null)
+            p.append('[').print(guard()).append(']');
     }
     
     
@@ -3,11 +3,31 @@ package wncalculus.expr;
 /**
   this class defines possibly unbounded positive integer intervals;
   the "empty" interval is [0,0]
-  intervals are implemented as "data-objects"
+  intervals are implemented as "data-objects";
+  for the sake of efficiency, an interval may be also packed into a <tt>long</tt> value
+  (the lower bound in the high 32 bits, the upper bound in the low ones), on which
+  arithmetic is done without allocating objects (see the static methods);
+  common small intervals are canonical (see <tt>of</tt>)
  */
   public final class Interval implements Comparable<Interval> {
         private final int lb, ub;//interval bounds
         
+        /**
+         * the packed value representing no interval (e.g., an empty intersection)
+         */
+        public static final long NONE = -1L;
+        
+        private static final int CACHED = 8; // the max bound of canonical intervals
+        private static final Interval[] BOUNDED = new Interval[(CACHED + 1) * (CACHED + 1)], UNBOUNDED = new Interval[CACHED + 1]; //cache
+        
+        static {
+            for (int i = 0; i <= CACHED; i++) {
+                UNBOUNDED[i] = new Interval(i);
+                for (int j = i; j <= CACHED; j++)
+                    BOUNDED[i * (CACHED + 1) + j] = new Interval(i, j);
+            }
+        }
+        
      /**
      * creates a bounded interval
      * @param lb the interval's lower bound
@@ -38,6 +58,132 @@ package wncalculus.expr;
             this.lb = this.ub = 0;
         }
         
+        /**
+         * @param lb the interval's lower bound
+         * @param ub the interval's upper bound
+         * @return the bounded interval [lb,ub] (small intervals are canonical)
+         * @throws IllegalArgumentException if the bounds are incorrect
+         */
+        public static Interval of (int lb, int ub) {
+            return 0 <= lb && lb <= ub && ub <= CACHED ? BOUNDED[lb * (CACHED + 1) + ub] : new Interval(lb, ub);
+        }
+        
+        /**
+         * @param lb the interval's lower bound
+         * @return the superiorly unbounded interval [lb,&infin;) (small intervals are canonical)
+         * @throws IllegalArgumentException if the bound is negative
+         */
+        public static Interval of (int lb) {
+            return 0 <= lb && lb <= CACHED ? UNBOUNDED[lb] : new Interval(lb);
+        }
+        
+        /**
+         * @param p a packed interval
+         * @return the corresponding interval; <tt>null</tt> if <tt>p</tt> is <tt>NONE</tt>
+         */
+        public static Interval of (long p) {
+            if (p == NONE)
+                return null;
+            
+            int lb = lb(p), ub = ub(p);
+            
+            return ub == -1 ? of(lb) : of(lb, ub);
+        }
+        
+        /**
+         * @return <tt>this</tt> interval, packed into a <tt>long</tt>
+         */
+        public long packed () {
+            return pack(this.lb, this.ub);
+        }
+        
+        /**
+         * @param lb a lower bound
+         * @param ub an upper bound (-1 means unbounded)
+         * @return the corresponding packed interval (the bounds are not checked)
+         */
+        public static long pack (int lb, int ub) {
+            return (long) lb << 32 | ub & 0xFFFFFFFFL;
+        }
+        
+        /**
+         * @param p a packed interval
+         * @return its lower bound
+         */
+        public static int lb (long p) {
+            return (int) (p >> 32);
+        }
+        
+        /**
+         * @param p a packed interval
+         * @return its upper bound (-1 if the interval is unbounded)
+         */
+        public static int ub (long p) {
+            return (int) p;
+        }
+        
+        /**
+         * @param p a packed interval
+         * @return <tt>true</tt> if and only if the interval is unbounded
+         */
+        public static boolean unbounded (long p) {
+            return (int) p == -1;
+        }
+        
+        /**
+         * packed version of <tt>sum</tt>
+         * @param p a packed interval
+         * @param q another packed interval
+         * @return the bound-wise sum of the intervals
+         */
+        public static long sum (long p, long q) {
+            return pack(lb(p) + lb(q), unbounded(p) || unbounded(q) ? -1 : ub(p) + ub(q));
+        }
+        
+        /**
+         * packed version of <tt>prod</tt>
+         * @param p a packed interval
+         * @param q another packed interval
+         * @return the bound-wise product of the intervals
+         * @throws ArithmeticException in the event of overflow
+         */
+        public static long prod (long p, long q) {
+            return pack(Math.multiplyExact(lb(p), lb(q)), unbounded(p) || unbounded(q) ? -1 : Math.multiplyExact(ub(p), ub(q)));
+        }
+        
+        /**
+         * packed version of <tt>intersect</tt>
+         * @param p a packed interval
+         * @param q another packed interval
+         * @return the intersection of the intervals; <tt>NONE</tt> if it is empty
+         */
+        public static long intersect (long p, long q) {
+            int lp = lb(p), up = ub(p), lq = lb(q), uq = ub(q);
+            if (up != -1 && up < lq || uq != -1 && uq < lp) 
+                return NONE;
+            
+            return pack(Math.max(lp, lq), up == -1 ? uq : uq == -1 ? up : Math.min(up, uq));
+        }
+        
+        /**
+         * packed version of <tt>merge</tt>
+         * @param p a packed interval
+         * @param q another packed interval
+         * @return the interval resulting from merging, in that order; <tt>NONE</tt> if the intervals are not "adjacent"
+         */
+        public static long merge (long p, long q) {
+            return lb(q) == ub(p) + 1 ? pack(lb(p), ub(q)) : NONE;
+        }
+        
+        /**
+         * @param p a packed interval
+         * @param k a value not greater than the lower bound
+         * @return the interval whose bounds are decreased by <tt>k</tt>
+         */
+        public static long minus (long p, int k) {
+            return pack(lb(p) - k, unbounded(p) ? -1 : ub(p) - k);
+        }
+        
         //accessor methods
 
     /**
@@ -114,14 +260,7 @@ package wncalculus.expr;
          * @return the (possibly null) "and" between this and interval
          */
         public Interval intersect (Interval other) {
-            if (! unbounded() && this.ub < other.lb  || !other.unbounded() && other.ub < this.lb()) 
-                return null;
-            
-            int newlb = Math.max(this.lb, other.lb);
-            if ( unbounded() && other.unbounded()) 
-                return new Interval(newlb);
-            
-            return new Interval(newlb, this.unbounded() ? other.ub : (other.unbounded() ? this.ub : Math.min(this.ub, other.ub)));
+            return of(intersect(packed(), other.packed()));
         }
         
     /**
@@ -130,7 +269,17 @@ package wncalculus.expr;
      * @return the bound-wise sum between this and interval
      */
     public Interval sum (Interval other) {
-        return unbounded() || other.unbounded() ? new Interval(lb + other.lb) : new Interval(lb + other.lb, ub + other.ub);
+        return of(sum(packed(), other.packed()));
+    }
+    
+    /**
+     * performs the bound-wise product of this and other intervals
+     * @param other the interval to be multiplied by this
+     * @return the bound-wise product between this and interval
+     * @throws ArithmeticException in the event of overflow
+     */
+    public Interval prod (Interval other) {
+        return of(prod(packed(), other.packed()));
     }
             
     /**
@@ -148,9 +297,9 @@ package wncalculus.expr;
                 return new Interval[0];
             
             if (delim == this.ub) 
-                return new Interval[]{new Interval(this.lb, delim-1), new Interval(delim, this.ub)};
+                return new Interval[]{of(this.lb, delim-1), of(delim, this.ub)};
           
-            return new Interval[]{new Interval(this.lb, delim), unbounded() ? new Interval(delim + 1) : new Interval(delim + 1, this.ub)};
+            return new Interval[]{of(this.lb, delim), unbounded() ? of(delim + 1) : of(delim + 1, this.ub)};
         }
         
     @Override
@@ -183,10 +332,7 @@ package wncalculus.expr;
          * if the intervals are not "adjacent"
          */
         public Interval merge (Interval other) {
-            if (other.lb == this.ub + 1) 
-                  return other.unbounded() ? new Interval(this.lb) : new Interval(this.lb, other.ub);
-            
-            return null;
+            return of(merge(packed(), other.packed()));
         }
 
     @Override
@@ -26,12 +26,14 @@ public interface MultiArgs<E extends ParametricExpr, F extends ParametricExpr> e
         E ide = getIde();
         Expression nullexpr = nullExpr(); 
         boolean changed = false, ide_is_nullexpr = ide != null && ide.equals(nullexpr);
+        Expression[] normals = Expressions.normalizeAll(args, ide_is_nullexpr ? null : nullexpr);
+        if (normals == null)
+            return nullexpr.cast();
+        
         Collection<E> copy = args instanceof Set<?> ? new HashSet<>() : new ArrayList<>();
+        int i = 0;
         for (E e : args) {
-            E normal = e.normalize().cast();
-            if (normal.equals(nullexpr) && !ide_is_nullexpr) 
-                return nullexpr.cast();
-            
+            E normal = normals[i++].cast();
             if (!e.equals(normal)) 
                 changed = true;
             if (! normal.equals(ide) ) //particular case: ide null
@@ -127,14 +129,24 @@ public interface MultiArgs<E extends ParametricExpr, F extends ParametricExpr> e
      * @return the corresponding String
      */
      default String toStringOp()  {
+        return Printer.render(this::printOp);
+    }
+     
+     /**
+      * prints a textual description for a n-ary operator
+      * @param p a printer
+      */
+     default void printOp(Printer p)  {
         String opsymb = symb();
-        StringBuilder res = new StringBuilder("(");
-        getArgs().forEach(x -> { res.append(x).append(opsymb); });
-        res.setCharAt(res.length() - 1, ')');
-        int length = res.length();
-        res.replace(length - opsymb.length(), length, ")");
-        
-        return res.toString();
+        p.append('(');
+        boolean first = true;
+        for (Object x : getArgs()) {
+            if (! first)
+                p.append(opsymb);
+            p.print(x);
+            first = false;
+        }
+        p.append(')');
     }
      
      @Override
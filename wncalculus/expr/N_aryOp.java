@@ -1,6 +1,7 @@
 package wncalculus.expr;
 
 import java.util.*;
+import wncalculus.util.SortedArraySet;
 import wncalculus.util.Util;
 
 /**
@@ -44,11 +45,20 @@ public interface N_aryOp<E extends ParametricExpr> extends MultiArgs<E,E>  {
       * @return the distribution of  <code>this</code> over a nestedop operation
       * (the returned object has the same type as the nestedop one);
       * or <code>this</code> if no match is found
-      * This implementation collections of the same type as the operator(s).
+      * This implementation collections of the same type as the operator(s);
+      * canonical operand sets are shared, rather than copied, among the built terms
       */
     default E distribute( N_aryOp<E> nestedop ) {
         Collection<E> nestedArgs = nestedop.getArgs(),
                       new_arg_set = nestedArgs instanceof Set<?> ? new HashSet<>() : new ArrayList<>();
+        if (getArgs() instanceof SortedArraySet<?>) {
+            SortedArraySet<E> others = ((SortedArraySet<E>) getArgs()).without(nestedop);
+            for (E term : nestedArgs )
+                new_arg_set.add( buildOp(others.with(term)) );
+            
+            return nestedop.buildOp(new_arg_set);
+        }
+        
         for (E term : nestedArgs ) {
             Collection<E> iset = Util.copy( getArgs() );
             iset.remove(nestedop); // copy of args without nestedop (efficient if an hashset is used)
@@ -76,6 +86,16 @@ public interface N_aryOp<E extends ParametricExpr> extends MultiArgs<E,E>  {
         if ( nested.isEmpty() )
             return null;
         
+        if (args instanceof SortedArraySet<?>) { // canonical sets are merged
+            @SuppressWarnings("unchecked")
+            SortedArraySet<E> sargs = (SortedArraySet<E>) args;
+            List<Collection<? extends E>> parts = new ArrayList<>();
+            parts.add(sargs.without(nested));
+            nested.forEach( op -> { parts.add(op.getArgs()); });
+            
+            return SortedArraySet.union(parts, sargs.order());
+        }
+        
         Collection<E> argscopy = Util.copy(args);
         argscopy.removeAll(nested);
         nested.forEach( op -> { argscopy.addAll(op.getArgs()); });
@@ -0,0 +1,180 @@
+package wncalculus.expr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * this class writes the textual form of (possibly huge) terms to an <tt>Appendable</tt>,
+ * in a single pass: composite terms print their operands directly on the printer,
+ * instead of concatenating their (intermediate) textual forms;
+ * a printer may be bounded, in which case its output is truncated (and marked by an ellipsis)
+ * as soon as the bound is reached, and the rest of terms is not visited (e.g., for logging)
+ * @author Lorenzo Capra
+ */
+public final class Printer {
+
+    /**
+     * the suffix of a truncated output
+     */
+    public static final String ELLIPSIS = "...";
+
+    private final Appendable out;
+    private final int max; // the max number of chars written (ellipsis excluded)
+    private int length;
+    private boolean truncated;
+
+    /**
+     * builds an unbounded printer
+     * @param out the output
+     */
+    public Printer(Appendable out) {
+        this(out, Integer.MAX_VALUE);
+    }
+
+    /**
+     * builds a bounded printer
+     * @param out the output
+     * @param max the max number of chars written, apart from the ellipsis
+     * @throws IllegalArgumentException if the bound is negative
+     */
+    public Printer(Appendable out, int max) {
+        if (max < 0)
+            throw new IllegalArgumentException("negative bound");
+
+        this.out = out;
+        this.max = max;
+    }
+
+    /**
+     * @param e a term
+     * @return the textual form of the term (the same as <tt>toString</tt>)
+     */
+    public static String toString(Expression e) {
+        StringBuilder sb = new StringBuilder();
+        new Printer(sb).print(e);
+
+        return sb.toString();
+    }
+
+    /**
+     * @param o an object (e.g., a term)
+     * @param max the max length of the result, apart from the ellipsis
+     * @return the (possibly truncated) textual form of the object
+     */
+    public static String toString(Object o, int max) {
+        StringBuilder sb = new StringBuilder();
+        new Printer(sb, max).print(o);
+
+        return sb.toString();
+    }
+
+    /**
+     * @param action a printing action
+     * @return the text written by the action on an (unbounded) printer
+     */
+    public static String render(Consumer<? super Printer> action) {
+        StringBuilder sb = new StringBuilder();
+        action.accept(new Printer(sb));
+
+        return sb.toString();
+    }
+
+    /**
+     * @return <tt>true</tt> if and only if the output has been truncated
+     */
+    public boolean truncated() {
+        return this.truncated;
+    }
+
+    /**
+     * appends a char sequence
+     * @param s a char sequence
+     * @return <tt>this</tt> printer
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+    public Printer append(CharSequence s) {
+        if (this.truncated)
+            return this;
+
+        try {
+            int n = s.length();
+            if (n <= this.max - this.length) {
+                this.out.append(s);
+                this.length += n;
+            }
+            else {
+                this.out.append(s, 0, this.max - this.length).append(ELLIPSIS);
+                this.length = this.max;
+                this.truncated = true;
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return this;
+    }
+
+    /**
+     * appends a char
+     * @param c a char
+     * @return <tt>this</tt> printer
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+    public Printer append(char c) {
+        if (this.truncated)
+            return this;
+
+        try {
+            if (this.length < this.max) {
+                this.out.append(c);
+                this.length++;
+            }
+            else {
+                this.out.append(ELLIPSIS);
+                this.truncated = true;
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return this;
+    }
+
+    /**
+     * appends an integer
+     * @param k an integer
+     * @return <tt>this</tt> printer
+     */
+    public Printer append(int k) {
+        return append(Integer.toString(k));
+    }
+
+    /**
+     * prints an object: terms are printed by <tt>Expression.print</tt>, other objects
+     * by their <tt>toString</tt>
+     * @param o an object (possibly <tt>null</tt>)
+     * @return <tt>this</tt> printer
+     */
+    public Printer print(Object o) {
+        if (! this.truncated) {
+            if (o instanceof Expression)
+                ((Expression) o).print(this);
+            else
+                append(String.valueOf(o));
+        }
+
+        return this;
+    }
+
+    /**
+     * prints a term, enclosed in brackets if it is a non-terminal
+     * @param o an object (possibly <tt>null</tt>)
+     * @return <tt>this</tt> printer
+     */
+    public Printer printOperand(Object o) {
+        return o instanceof NonTerminal ? append('(').print(o).append(')') : print(o);
+    }
+}
@@ -35,14 +35,30 @@ public interface SingleArg<E extends ParametricExpr, F extends ParametricExpr> e
      * @return its corresponding String
      */
     default String toStringOp () {
-        return symb() + '(' + getArg() + ')';
+        return Printer.render(this::printOp);
+    }
+    
+    /**
+     * prints a infix description for a unary operator
+     * @param p a printer
+     */
+    default void printOp (Printer p) {
+        p.append(symb()).append('(').print(getArg()).append(')');
     }
         
      /**
      @return a postfix representation of the operator
      */
     default String toStringPost() {
-        return "(" + getArg() + ')' + symb();
+        return Printer.render(this::printPost);
+    }
+    
+    /**
+     * prints a postfix representation of the operator
+     * @param p a printer
+     */
+    default void printPost(Printer p) {
+        p.append('(').print(getArg()).append(')').append(symb());
     }
     
     /**
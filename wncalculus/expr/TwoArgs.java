@@ -92,14 +92,12 @@ public interface TwoArgs<E extends ParametricExpr, F extends ParametricExpr> ext
      */
     @Override
     default String toStringOp () {
-        Object left = left(), right = right();
-        String sleft = left.toString(), sright = right.toString();
-        if ( left instanceof NonTerminal ) 
-            sleft = "(" + sleft + ')';
-        if (right instanceof NonTerminal) 
-            sright = "(" + sright + ')';
-        
-        return sleft + " " + symb() + " " + sright;
+        return Printer.render(this::printOp);
+    }
+    
+    @Override
+    default void printOp (Printer p) {
+        p.printOperand(left()).append(' ').append(symb()).append(' ').printOperand(right());
     }
     
     /**
@@ -3,6 +3,8 @@ package wncalculus.guard;
 import java.util.*;
 import wncalculus.expr.*;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 import wncalculus.graph.InequalityGraph;
 import wncalculus.logexpr.AndOp;
 import wncalculus.classfunction.ClassFunction;
@@ -20,7 +22,14 @@ import wncalculus.util.Util;
  */
 public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
     
-    private Map<Color, InequalityGraph> igraph; // cashing: the (possibly empty) map between colors and corresponding inequality graphs
+    private volatile Map<Color, InequalityGraph> igraph; // cashing: the (possibly empty) map between colors and corresponding inequality graphs
+    private volatile Boolean unsat; // cache: the outcome of unsatisfiable
+    
+    /* the (estimated) number of terms resulting from distributing an And over its Or operands,
+       from which the factored form is first pruned and, if needed, kept (by default distribution is always done) */
+    private static volatile long distribution_threshold = Long.MAX_VALUE;
+    // distribution metrics
+    private static final AtomicLong DISTRIBUTIONS = new AtomicLong(), PRUNED = new AtomicLong(), KEPT_FACTORED = new AtomicLong();
 
     
     private And (Set<? extends Guard> guards, boolean check) {
@@ -130,6 +139,11 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
         
     @Override
     public Map<Sort, Integer> splitDelimiters ( ) {    
+        return splitDelimiters(null);
+    }
+    
+    @Override
+    public Map<Sort, Integer> splitDelimiters (Map<ColorClass, ? extends List<? extends ClassFunction>> right_tuple) {    
         Map<Sort, Integer> delimiters = super.splitDelimiters();
         //System.out.println("ecco delims: "+delimiters); //debug
         if (elementary() && delimiters.isEmpty() ) 
@@ -144,7 +158,7 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
                     ColorClass.setDelim(delimiters, cc, cc.lb() - lb + X - 1 /*new Delimiter(cc.lb() - lb + X - 1, false)*/);
                 }
                 else {
-                    List<? extends ClassFunction> rt = getRightTuple() != null ? getRightTuple().get(cc) : null;
+                    List<? extends ClassFunction> rt = right_tuple != null ? right_tuple.get(cc) : null;
                     ColorClass.setDelim(delimiters, cc, g.splitDelimiter(rt));
                 }
         });
@@ -153,6 +167,21 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
     } 
     
     
+    /*
+    builds a copy of a "congruent" map (@see equalityMap, membershipMap) whose sets can be
+    rewritten without affecting the original one
+    */
+    private static <S extends Set<?>> Map<ColorClass, Map<Boolean, S>> deepCopy (Map<ColorClass, Map<Boolean, S>> m, UnaryOperator<S> copier) {
+        Map<ColorClass, Map<Boolean, S>> copy = new HashMap<>();
+        m.forEach((cc, m_cc) -> {
+            Map<Boolean, S> c_cc = new HashMap<>();
+            m_cc.forEach((sign, s) -> { c_cc.put(sign, copier.apply(s)); });
+            copy.put(cc, c_cc);
+        });
+        
+        return copy;
+    }
+    
     /**
      * for each colour of <code>this</code> and form, maps the associated "domain"
      * (either a color class or a subclass) into the associated inequality graph;
@@ -163,8 +192,9 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
      * an independent set
      */
     public Map<Color, InequalityGraph> igraph () {
-        if (igraph == null) {
-            igraph = new HashMap<>();
+        Map<Color, InequalityGraph> res = igraph;
+        if (res == null) {
+            Map<Color, InequalityGraph> graphs = new HashMap<>(); // published when complete
             equalityMap().entrySet().forEach(e -> {
                 ColorClass cc = e.getKey();
                 SortedSet<Equality> inequalities = e.getValue().get(false);
@@ -176,12 +206,13 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
                         if (sdom != null)
                             c = sdom;
                     }
-                    igraph.put(c, g);
+                    graphs.put(c, g);
                 }
             });
+            igraph = res = graphs;
         }
         //System.out.println("igraph di "+this +": "+this.igraph); //debug
-        return igraph;
+        return res;
     }
     
     
@@ -324,19 +355,41 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
      * <code>true</code> if some replacement has been done, <code>false</code> otherwise
      */
     /*private*/ public static <E extends ElementaryGuard> Boolean replaceEq (Set<E> to_replace, SortedSet<? extends Equality> eqs) {
+        return eqs.isEmpty() ? Boolean.FALSE : replaceEq(to_replace, Substitution.of(eqs.first().getSort(), eqs));
+    }
+    
+    /**
+     * batch version of @see replace: accordingly to a substitution (built from a set of equalities),
+     * replaces symbols into a set of elementary guards in just one pass; if some guard becomes "false"
+     * then the process immediately stops, and <code>null</code> is returned; replacements resulting in
+     * "true" are skipped (a set of inequalities may result empty after replacements!)
+     * @param <E> the type of elementary guard
+     * @param to_replace the set of guards in which replacements are done
+     * @param s the substitution
+     * @return <code>null</code> if some guards becomes <code>false</code>;
+     * <code>true</code> if some replacement has been done, <code>false</code> otherwise
+     */
+    public static <E extends ElementaryGuard> Boolean replaceEq (Set<E> to_replace, Substitution s) {
+        if (s.isIdentity())
+            return false;
+        
         boolean done = false;
         List<E> replaced = new ArrayList<>();
-        //System.err.print("replacment:" + to_replace +',' + eqs); //debug
-        for (Equality eq : eqs) {
-            Boolean some_repl = replaceEq(to_replace, eq, replaced);
-            if (some_repl == null ) 
+        for (Iterator<E> ite = to_replace.iterator(); ite.hasNext() ;  ) {
+            E g = ite.next();
+            Guard f = g.replace(s);
+            if (f instanceof False) 
                 return null;
             
-            if (some_repl)    
-                done = true;
+            if ( ! g.equals(f) ) {
+                 done = true;
+                 ite.remove();
+                 if (f instanceof ElementaryGuard) // if f is True then it is skipped
+                    replaced.add((E)f); 
+             }     
         }
         to_replace.addAll(replaced);
-        //System.err.println(" : --> " + to_replace);//debug
+        
         return done;
     }
     
@@ -454,10 +507,11 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
     public Guard specSimplify() { //new
         //System.out.println("And.specsimplify (1)\n"+this);
         if ( ! elementary() )
-            return this;
-        //first the equalities are put in the canonical form
+            return distributionSize() > distribution_threshold && unsatisfiable() ? getFalse() : this; // a factored form
+        //first the equalities are put in the canonical form (on a copy, the cached maps may be shared)
+        Map<ColorClass, Map<Boolean, SortedSet<Equality>>> eqs = deepCopy(equalityMap(), TreeSet::new);
         HashSet<ColorClass> involved = new HashSet<>();
-        for (Map.Entry<ColorClass, Map<Boolean, SortedSet<Equality>>> e : equalityMap().entrySet()) {
+        for (Map.Entry<ColorClass, Map<Boolean, SortedSet<Equality>>> e : eqs.entrySet()) {
             SortedSet<Equality> es = e.getValue().get(true);
             if (es != null && es.size() > 1 && toCanonicalForm(es) ) {
                 if (es.isEmpty())
@@ -469,19 +523,21 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
         if (! involved.isEmpty() ) { //new
             HashSet<Guard> copy = new HashSet<>(); //we copy all guards but the equalities of colors involved in the canonization..
             getArgs().stream().filter(g -> ! (g.isEquality() && involved.contains(((Equality)g).getSort()))). forEachOrdered(g -> { copy.add(g);} );
-            involved.forEach(cc -> { copy.addAll( equalityMap().get(cc).get(true) ); });
+            involved.forEach(cc -> { copy.addAll( eqs.get(cc).get(true) ); });
             
             return And.factory(copy);
         }
         //then symbols in inequalities and memberships are replaced, accordibg to equalites
+        Map<ColorClass, Map<Boolean, HashSet<Membership>>> membs = deepCopy(membershipMap(), HashSet::new);
         boolean replaced = false;
-        for (Map.Entry<ColorClass, Map<Boolean, SortedSet<Equality>>> e :  equalityMap().entrySet()) {
+        for (Map.Entry<ColorClass, Map<Boolean, SortedSet<Equality>>> e :  eqs.entrySet()) {
             Boolean done;
             SortedSet<Equality> es  = e.getValue().get(true);
             if (es != null) {
+                Substitution sub = Substitution.of(e.getKey(), es); // computed once for inequalities and memberships
                 SortedSet<Equality> ies = e.getValue().get(false); //(non-empty) set of inequalities
                 if (ies != null ) {
-                    if ( (done = replaceEq(ies, es) ) == null)
+                    if ( (done = replaceEq(ies, sub) ) == null)
                         return getFalse();
                     else if (done) {
                         replaced = true;
@@ -489,12 +545,12 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
                             e.getValue().remove(false); //if the inquality set becomes empty we (coherently) remove it
                     }
                 }
-                Map<Boolean, HashSet<Membership>> mm = membershipMap().get(e.getKey());
+                Map<Boolean, HashSet<Membership>> mm = membs.get(e.getKey());
                 if (mm != null) // there exists some memberships clauses of the same color ...
                     for (Entry<Boolean, HashSet<Membership>> x : mm.entrySet()) {
                         Set<Membership> ms = x.getValue();
                         if (ms != null) {
-                            if ( (done = replaceEq(ms, es) ) == null)
+                            if ( (done = replaceEq(ms, sub) ) == null)
                                 return getFalse();
                             else if (done)
                                 replaced = true;
@@ -504,8 +560,7 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
         }
         
         if (replaced) {
-            Guard rep = And.factory( equalityMap(), membershipMap() );
-            reset(); //just for coherence
+            Guard rep = And.factory( eqs, membs );
             //System.out.println("after replacment: -->\n"+rep); //debug
             return rep;
         }
@@ -602,6 +657,166 @@ public final class And  extends NaryGuardOperator implements AndOp<Guard>  {
     public Set<Class<? extends MultiArgs >> distributiveOps () {
         return Collections.singleton(Or.class);
     }
+    
+    /**
+     * sets the (estimated) size of the sum resulting from the distribution of an And over its
+     * Or operands, from which the distribution is guarded: the Or operands are first pruned,
+     * by discarding the terms which are inconsistent with the other operands; if the estimate is
+     * still over the threshold, the And is kept in factored form;
+     * CAREFUL: factored forms are not elementary, so very low thresholds may result in deeply
+     * nested terms when algorithms based on difference (e.g. containment checks) are applied
+     * @param threshold the distribution threshold
+     */
+    public static void setDistributionThreshold(long threshold) {
+        distribution_threshold = Math.max(1, threshold);
+    }
+    
+    /**
+     * @return the distribution threshold
+     */
+    public static long distributionThreshold() {
+        return distribution_threshold;
+    }
+    
+    /**
+     * @return a textual description of distribution metrics: the number of distribution
+     * steps, of guarded distributions reduced by pruning, and of avoided blow-ups
+     * (And terms kept in factored form)
+     */
+    public static String distributionStats() {
+        return "distributions: " + DISTRIBUTIONS.get() + ", pruned: " + PRUNED.get() + ", kept factored: " + KEPT_FACTORED.get();
+    }
+    
+    /**
+     * resets the distribution metrics
+     */
+    public static void resetDistributionStats() {
+        DISTRIBUTIONS.set(0);
+        PRUNED.set(0);
+        KEPT_FACTORED.set(0);
+    }
+    
+    /**
+     * @return an estimate of the number of terms resulting from the full distribution of
+     * <tt>this</tt> And over its Or operands (saturated to <tt>Long.MAX_VALUE</tt>)
+     */
+    public long distributionSize() {
+        long size = 1;
+        for (Guard g : getArgs())
+            if (g instanceof Or) {
+                int n = ((Or) g).getArgs().size();
+                size = size > Long.MAX_VALUE / n ? Long.MAX_VALUE : size * n;
+            }
+        
+        return size;
+    }
+    
+    /**
+     * guarded distribution: if the estimated size of the outcome is over the threshold
+     * the Or operands are pruned; if the estimate is still over the threshold <tt>this</tt>
+     * is kept in factored form
+     * @param nestedop an Or operand
+     * @return the distribution of <tt>this</tt> over the Or operand; or an equivalent
+     * pruned And; or <tt>this</tt>, if the factored form is kept
+     */
+    @Override
+    public Guard distribute(N_aryOp<Guard> nestedop) {
+        if (distributionSize() > distribution_threshold) {
+            Guard pruned = pruneDisjuncts();
+            if (pruned != this) {
+                PRUNED.incrementAndGet();
+                return pruned;
+            }
+            
+            KEPT_FACTORED.incrementAndGet();
+            return this;
+        }
+        
+        DISTRIBUTIONS.incrementAndGet();
+        return AndOp.super.distribute(nestedop);
+    }
+    
+    /**
+     * prunes the Or operands of <tt>this</tt> And by discarding the terms which are inconsistent
+     * with the conjunction of the other (non-Or) operands
+     * @return an equivalent And with pruned Or operands, or the False constant;
+     * <tt>this</tt> if nothing is pruned
+     */
+    private Guard pruneDisjuncts() {
+        Set<Guard> others = new HashSet<>(), args = new HashSet<>();
+        getArgs().stream().filter(g -> ! (g instanceof Or)).forEachOrdered(g -> { others.add(g); });
+        if (others.isEmpty())
+            return this;
+        
+        boolean pruned = false;
+        for (Guard g : getArgs()) 
+            if (g instanceof Or) {
+                List<Guard> kept = new ArrayList<>();
+                for (Guard d : ((Or) g).getArgs()) {
+                    Set<Guard> conj = new HashSet<>(others);
+                    conj.add(d);
+                    if ( ! And.factory(conj, false).normalize().isFalse() )
+                        kept.add(d);
+                }
+                if (kept.isEmpty())
+                    return getFalse();
+                
+                if (kept.size() < ((Or) g).getArgs().size()) {
+                    pruned = true;
+                    args.add(Or.factory(kept, false, ((Or) g).disjoined()));
+                }
+                else
+                    args.add(g);
+            }
+        if (! pruned)
+            return this;
+        
+        args.addAll(others);
+        
+        return And.factory(args, false);
+    }
+    
+    /**
+     * decision procedure for factored forms: checks whether <tt>this</tt> And is unsatisfiable
+     * by case splitting on the disjuncts of its smallest Or operand (without distributing
+     * over the other ones); the check stops at the first satisfiable case; the outcome is
+     * computed once
+     * @return <tt>true</tt> if and only if <tt>this</tt> And is equivalent to False
+     */
+    public boolean unsatisfiable() {
+        Boolean res = this.unsat;
+        if (res == null)
+            this.unsat = res = caseSplit();
+        
+        return res;
+    }
+    
+    /*
+    the case split of unsatisfiable: each case is normalized, which (if it is still a factored
+    And) already checks its unsatisfiability, so a normalized case is unsatisfiable if and only
+    if it is False
+    */
+    private boolean caseSplit() {
+        Or split = null;
+        for (Guard g : getArgs())
+            if (g instanceof Or && (split == null || ((Or) g).getArgs().size() < split.getArgs().size()))
+                split = (Or) g;
+        if (split == null)
+            return normalize().isFalse();
+        
+        Set<Guard> others = new HashSet<>(getArgs());
+        others.remove(split);
+        for (Guard d : split.getArgs()) {
+            boolean added = others.add(d);
+            Guard c = (Guard) And.factory(others, false).normalize();
+            if (added)
+                others.remove(d);
+            if (! c.isFalse() )
+                return false;
+        }
+        
+        return true;
+    }
 
     @Override
     boolean congrsign() {
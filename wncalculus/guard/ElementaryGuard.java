@@ -127,6 +127,15 @@ public abstract class ElementaryGuard extends Guard implements SingleSortExpr  {
      */
     public abstract Guard replace(Equality eq) ;
     
+    /**
+     * does a symbol replacement in {this} guard, according to the specified substitution
+     * (i.e., to a set of equalities)
+     * @param s a substitution
+     * @return the guard obtained from @code {this} by replacing symbols according to
+     * the substitution
+     */
+    public abstract Guard replace(Substitution s) ;
+    
     
     abstract Guard copy(ColorClass cc, Domain newdom) ;    
     
@@ -71,14 +71,16 @@ public  static final Map< ComplexKey, Equality> VALUES = new HashMap<>();
         p1 = p1.setExp(0);
         p2 = p2.setExp(exp2 - exp);
         
-        Equality eq;
         ComplexKey k = new ComplexKey(p1, p2, op, dom);
-        if ( (eq = VALUES.get(k)) == null) {
-            VALUES.put(k,  eq = new Equality(p1, p2, op, dom)) ;
-            //Util.checkBuilderOneStep(eq, VALUES); //debug
+        synchronized (VALUES) {
+            Equality eq;
+            if ( (eq = VALUES.get(k)) == null) {
+                VALUES.put(k,  eq = new Equality(p1, p2, op, dom)) ;
+                //Util.checkBuilderOneStep(eq, VALUES); //debug
+            }
+
+            return eq;
         }
-        
-        return eq;
     }
        
     /**
@@ -127,6 +129,13 @@ public  static final Map< ComplexKey, Equality> VALUES = new HashMap<>();
         
         return p1 == getArg1() && p2 == getArg2() ? this : Equality.builder(p1, p2, sign(), getDomain() ); 
     }
+    
+    @Override
+    public Guard replace(Substitution s) {
+        Projection p1 = s.apply(getArg1()), p2 = s.apply(getArg2());
+        
+        return p1 == getArg1() && p2 == getArg2() ? this : Equality.builder(p1, p2, sign(), getDomain() ); 
+    }
 
     @Override
     public Set<Integer> indexSet() {
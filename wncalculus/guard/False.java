@@ -32,11 +32,13 @@ public final class False extends ConstantGuard  {
      * @return a False constant
      */
     public static final False getInstance(Domain dom) {
-        False g;
-        if ((g = VALUES.get(dom)) == null) 
-            VALUES.put(dom, g = new False(dom)) ;
-        
-        return g;
+        synchronized (VALUES) {
+            False g;
+            if ((g = VALUES.get(dom)) == null) 
+                VALUES.put(dom, g = new False(dom)) ;
+
+            return g;
+        }
     }
 
     @Override
@@ -3,10 +3,11 @@ package wncalculus.guard;
 import wncalculus.logexpr.LogicalExpr;
 import java.util.*;
 
-import wncalculus.classfunction.SetFunction;
+import wncalculus.classfunction.ClassFunction;
 import wncalculus.color.ColorClass;
 import wncalculus.expr.Domain;
 import wncalculus.expr.Expression;
+import wncalculus.expr.Sort;
 import wncalculus.util.Util;
 
 /**
@@ -17,7 +18,6 @@ import wncalculus.util.Util;
 public abstract class Guard implements LogicalExpr {
     
     private boolean simplified;
-    private Map<ColorClass , List<? extends SetFunction>> right_tuple; // if other than null, marks this guard as a filter of a tuple
     
     
     @Override
@@ -31,21 +31,17 @@ public abstract class Guard implements LogicalExpr {
     }
     
     /**
-     * set <tt>this</tt> guard as a filter associated to a given tuple, expressed by
-     * a map of colors to corresponding class-function lists
-     * @param m a map between colors and corresponding class-function lists (i.e, a tuple)
-     */
-    public final void setAsFilter(Map<ColorClass, List<? extends SetFunction>> m) {
-        this.right_tuple = m;
-    }
-    
-    /**
-     *
-     * @return the tuple (expressed as a map) which is associated with <tt>this</tt> guard,
-     * seen as a filter; <tt>null</tt> if no tuple is associayed with <tt>this</tt> guard
-     */
-    public Map<ColorClass , List<? extends SetFunction>> getRightTuple() {
-        return this.right_tuple;
+     * computes the split-delimiters of <tt>this</tt> guard seen as a filter of a given tuple,
+     * expressed by a map of colors to corresponding class-function lists;
+     * the binding is passed as an argument (rather than stored), so that guards may be
+     * shared among different tuples
+     * (default implementation, to override if the right tuple is significant)
+     * @param right_tuple the tuple (expressed as a map) which <tt>this</tt> guard filters;
+     * <tt>null</tt> if <tt>this</tt> guard is not seen as a filter
+     * @return a (possibly empty) map from colours to split-delimiters 
+     */
+    public Map<Sort, Integer> splitDelimiters(Map<ColorClass, ? extends List<? extends ClassFunction>> right_tuple) {
+        return splitDelimiters();
     }
     
     
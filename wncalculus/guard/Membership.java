@@ -73,11 +73,13 @@ public final class Membership extends ElementaryGuard  {
             sign = true; 
         }
         ComplexKey k = new ComplexKey(p1, sc, sign, dom);
-        Membership m = VALUES.get(k);
-        if ( m == null) 
-            VALUES.put(k,  m = new Membership(p1, sc, sign, dom)) ;
-        
-        return m;
+        synchronized (VALUES) {
+            Membership m = VALUES.get(k);
+            if ( m == null) 
+                VALUES.put(k,  m = new Membership(p1, sc, sign, dom)) ;
+
+            return m;
+        }
     }
     
     /**
@@ -200,6 +202,13 @@ public final class Membership extends ElementaryGuard  {
         
         return p == getArg1() ? this : Membership.build( p, subcl(), sign(), getDomain() ) ;
     }
+    
+    @Override
+    public Membership replace(Substitution s) {
+        Projection p = s.apply(getArg1());
+        
+        return p == getArg1() ? this : Membership.build( p, subcl(), sign(), getDomain() ) ;
+    }
 
     /**
      *
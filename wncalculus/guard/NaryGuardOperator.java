@@ -7,6 +7,7 @@ import wncalculus.classfunction.Projection;
 import wncalculus.color.ColorClass;
 import wncalculus.util.Util;
 import wncalculus.util.Pair;
+import wncalculus.util.SortedArraySet;
 
 /**
  * this class represents the super-type for n-ary boolean op.s
@@ -14,15 +15,17 @@ import wncalculus.util.Pair;
  */
 public abstract class NaryGuardOperator extends Guard implements N_aryOp<Guard>  {
     
-    private final Set<Guard> args;   // the operand's list
+    private final SortedArraySet<Guard> args;   // the operand's list (in canonical order)
     // caching
-    private Map<ColorClass, Map<Boolean, SortedSet<Equality>> >   eq_map;
-    private Map<ColorClass, Map<Boolean, HashSet<Membership>> >   memb_map;
+    private String str;
+    private volatile Map<ColorClass, Map<Boolean, SortedSet<Equality>> >   eq_map;
+    private volatile Map<ColorClass, Map<Boolean, HashSet<Membership>> >   memb_map;
     private Boolean elementary;
     
     abstract boolean congrsign();// the "congruent sign"
     /**
     * 1st base constructor: builds a n-ary operator from a set of guards
+    * the operands are stored in canonical order (the set is shared if already canonical)
     * @param guards a set of guards (the operands)
     * @param check check-domain flag
     * @throws IllegalDomain if the guards' domains are different
@@ -30,7 +33,7 @@ public abstract class NaryGuardOperator extends Guard implements N_aryOp<Guard>
     protected NaryGuardOperator(Set<? extends Guard> guards, boolean check) {
         if (check)
             Expressions.checkDomain(guards);
-        this.args  = Collections.unmodifiableSet(guards);
+        this.args  = SortedArraySet.of(guards, Expressions.STRUCTURAL_ORDER);
     }
     
     
@@ -76,28 +79,28 @@ public abstract class NaryGuardOperator extends Guard implements N_aryOp<Guard>
         
     /*
     initializes the color-maps of elementary guards from the args member
-    assumes that the guard is "elementary"
+    assumes that the guard is "elementary"; the maps are filled before being published
     */
     private void setElementaryMaps () {
-        eq_map   = new HashMap<>();
-        memb_map = new HashMap<>();
+        Map<ColorClass, Map<Boolean, SortedSet<Equality>> > eqs   = new HashMap<>();
+        Map<ColorClass, Map<Boolean, HashSet<Membership>> > membs = new HashMap<>();
         ColorClass cc;
         for (Guard g : args) 
             if (g instanceof Equality) {
                 Equality e = (Equality) g;
-                Map<Boolean, SortedSet<Equality>> m_cc = eq_map.get(cc = e.getSort());
+                Map<Boolean, SortedSet<Equality>> m_cc = eqs.get(cc = e.getSort());
                 if (m_cc == null)
-                    eq_map.put(cc, m_cc = new HashMap<>());
+                    eqs.put(cc, m_cc = new HashMap<>());
                 Util.addOrdElem(e.sign(), e, m_cc, null );
             } else { //g assumed of MemberShip type
                 Membership m = (Membership) g;
-                Map<Boolean, HashSet<Membership>> m_cc = memb_map.get(cc = m.getSort());
+                Map<Boolean, HashSet<Membership>> m_cc = membs.get(cc = m.getSort());
                 if (m_cc == null)
-                    memb_map.put(cc, m_cc = new HashMap<>());
+                    membs.put(cc, m_cc = new HashMap<>());
                 Util.addElem(m.sign(), m, m_cc);
             }
-        eq_map   = Collections.unmodifiableMap(eq_map);
-        memb_map = Collections.unmodifiableMap(memb_map);
+        eq_map   = Collections.unmodifiableMap(eqs);
+        memb_map = Collections.unmodifiableMap(membs);
     }
     
     
@@ -155,14 +158,6 @@ public abstract class NaryGuardOperator extends Guard implements N_aryOp<Guard>
         
         return map != null ? map.getOrDefault(sign, Membership.EmptySet) : Membership.EmptySet;
     }
-            
-     /*
-     enforce recomputing both the "congruent" maps
-     */
-    void reset() {
-        eq_map   = null;
-        memb_map = null;
-    }
         
    @Override
    public final Set<Guard> getArgs() {
@@ -184,7 +179,18 @@ public abstract class NaryGuardOperator extends Guard implements N_aryOp<Guard>
     
     @Override
     public final String toString() {
-        return N_aryOp.super.toStringOp();
+        if (this.str == null)
+            this.str = N_aryOp.super.toStringOp();
+        
+        return this.str;
+    }
+    
+    @Override
+    public final void print(Printer p) {
+        if (this.str != null)
+            p.append(this.str);
+        else
+            N_aryOp.super.printOp(p);
     }
     
     
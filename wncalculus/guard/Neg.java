@@ -4,6 +4,7 @@ import java.util.*;
 import wncalculus.logexpr.NotOp;
 import wncalculus.expr.Domain;
 import wncalculus.expr.Sort;
+import wncalculus.expr.Printer;
 
 /**
  * this class represent the boolean negation operator
@@ -75,5 +76,11 @@ public final class Neg extends Guard implements NotOp<Guard> {
     public final String toString() {
         return NotOp.super.toStringOp();
     }
+
+    
+    @Override
+    public final void print(Printer p) {
+        NotOp.super.printOp(p);
+    }
     
 }
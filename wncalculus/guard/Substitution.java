@@ -0,0 +1,168 @@
+package wncalculus.guard;
+
+import java.util.*;
+import wncalculus.classfunction.ClassFunction;
+import wncalculus.classfunction.Projection;
+import wncalculus.color.ColorClass;
+
+/**
+ * this class represents the symbol replacement induced by a set of equalities of a given color,
+ * encoded as an index-remapping array: the representative of each variable (the one with the least
+ * index among those it is equal to) and the corresponding successor offset are computed once,
+ * by union-find, so that a term may be rewritten in just one traversal, rather than once for
+ * each equality
+ * @author Lorenzo Capra
+ */
+public final class Substitution {
+
+    private final ColorClass cc;
+    private final int[] rep; // rep[i]: the representative index of variable i
+    private final int[] off; // off[i]: the successor offset of variable i w.r.t. its representative
+    private final boolean identity;
+
+    private Substitution(ColorClass cc, int[] rep, int[] off, boolean identity) {
+        this.cc  = cc;
+        this.rep = rep;
+        this.off = off;
+        this.identity = identity;
+    }
+
+    /**
+     * builds the substitution corresponding to a collection of equalities of the same color;
+     * inequalities and equalities between variables with the same index are ignored;
+     * if two equalities relate the same variables with different offsets, the first one is considered
+     * @param cc the equalities' color
+     * @param eqs a collection of equalities
+     * @return the corresponding substitution
+     * @throws IllegalArgumentException if an equality's color is different from the specified one
+     */
+    public static Substitution of(ColorClass cc, Collection<? extends Equality> eqs) {
+        int max = 0;
+        for (Equality e : eqs) {
+            if (! e.getSort().equals(cc))
+                throw new IllegalArgumentException("equalities of different colors: "+eqs);
+
+            max = Math.max(max, e.secondIndex());
+        }
+        int[] parent = new int[max + 1], d = new int[max + 1]; // X_i^t = X_parent[i]^(t+d[i])
+        for (int i = 0; i <= max; i++)
+            parent[i] = i;
+        boolean identity = true;
+        for (Equality e : eqs)
+            if (e.sign() && ! e.sameIndex()) {
+                int i = e.firstIndex(), j = e.secondIndex(), s = e.getSucc(),
+                    ri = find(parent, d, i), di = d[i], rj = find(parent, d, j), dj = d[j];
+                if (ri < rj) { // X_j^t = X_i^(t-s)
+                    parent[rj] = ri;
+                    d[rj] = di - s - dj;
+                }
+                else if (rj < ri) {
+                    parent[ri] = rj;
+                    d[ri] = dj + s - di;
+                }
+                identity = identity && ri == rj;
+            }
+        for (int i = 0; i <= max; i++)
+            find(parent, d, i);
+
+        return new Substitution(cc, parent, d, identity);
+    }
+
+    /**
+     * builds the substitutions corresponding to the positive equalities of a guard, grouped by color
+     * @param g a guard
+     * @return a (possibly empty) map between colors and corresponding substitutions
+     */
+    public static Map<ColorClass, Substitution> of(Guard g) {
+        Map<ColorClass, Substitution> map = new HashMap<>();
+        g.equalityMap().forEach( (cc, m) -> {
+            SortedSet<Equality> eqs = m.get(true);
+            if (eqs != null && ! eqs.isEmpty())
+                map.put(cc, of(cc, eqs));
+        });
+
+        return map;
+    }
+
+    /**
+     * finds the root of a variable, compressing the path and updating its offset
+     */
+    private static int find(int[] parent, int[] d, int i) {
+        int p = parent[i];
+        if (p != i) {
+            int r = find(parent, d, p);
+            d[i] += d[p];
+            parent[i] = r;
+        }
+
+        return parent[i];
+    }
+
+    /**
+     * @return the substitution's color
+     */
+    public ColorClass getSort() {
+        return this.cc;
+    }
+
+    /**
+     * @return <tt>true</tt> if and only if <tt>this</tt> substitution doesn't replace any symbol
+     */
+    public boolean isIdentity() {
+        return this.identity;
+    }
+
+    /**
+     * @param index a variable index
+     * @return the index of the variable replacing the specified one
+     */
+    public int rep(int index) {
+        return index < this.rep.length ? this.rep[index] : index;
+    }
+
+    /**
+     * applies <tt>this</tt> substitution to a projection
+     * @param p a projection
+     * @return the projection replacing the specified one; <tt>p</tt> if it is not replaced
+     */
+    public Projection apply(Projection p) {
+        int i = p.getIndex();
+        if (this.identity || i >= this.rep.length || this.rep[i] == i || ! p.getSort().equals(this.cc))
+            return p;
+
+        return Projection.builder(this.rep[i], p.getSucc() + this.off[i], this.cc);
+    }
+
+    /**
+     * applies <tt>this</tt> substitution to each function of a list (assumed homogeneous),
+     * operating in a destructive way
+     * @param <E> the functions' type
+     * @param lf a list of functions
+     * @return <tt>true</tt> if and only if the list is modified
+     */
+    public <E extends ClassFunction> boolean apply(List<E> lf) {
+        if (this.identity)
+            return false;
+
+        boolean replaced = false;
+        for (ListIterator<E> ite = lf.listIterator(); ite.hasNext(); ) {
+           E f = ite.next() , pf ;
+           if (f.getSort().equals(this.cc) && (pf  = f.replace(this) ) != f) {
+               replaced = true;
+               ite.set(pf);
+           }
+        }
+
+        return replaced;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < this.rep.length; i++)
+            if (this.rep[i] != i)
+                sb.append(Projection.builder(i, 0, this.cc)).append("->").append(Projection.builder(this.rep[i], this.off[i], this.cc)).append(' ');
+
+        return sb.append('}').toString();
+    }
+}
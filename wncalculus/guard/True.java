@@ -28,11 +28,13 @@ public final class True extends ConstantGuard  {
      * @return a <tt>True</tt> constant of the given domain
      */
     public static final True getInstance(Domain dom) {
-        True g;
-        if ((g = VALUES.get(dom)) == null) 
-            VALUES.put(dom, g = new True(dom)) ;
-        
-        return g;
+        synchronized (VALUES) {
+            True g;
+            if ((g = VALUES.get(dom)) == null) 
+                VALUES.put(dom, g = new True(dom)) ;
+
+            return g;
+        }
     }
     
     @Override
@@ -0,0 +1,272 @@
+package wncalculus.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import wncalculus.expr.Expression;
+import wncalculus.guard.And;
+
+/**
+ * this class represents a persistent store of normal forms, backed by a file which is mapped into memory:
+ * a normal form is associated with the canonical encoding of the term it derives from, so that re-running
+ * the normalization of unchanged terms (e.g., the arc-functions of an unchanged model) only costs their encoding
+ * and the decoding of stored results;
+ * the file is a header (holding the store's format, the encoding's version, and the global settings normal forms
+ * depend on, i.e., the distribution threshold of <tt>And</tt>) followed by a sequence of records,
+ * each composed of a key (an encoded term) and a value (its encoded normal form); records are only appended;
+ * if the header doesn't match the current versions and settings, the file is considered stale and it is cleared
+ * (the same happens if the settings change while the store is open);
+ * a truncated final record (e.g., after a crash) is discarded
+ * @author Lorenzo Capra
+ */
+public final class NormalFormStore implements Closeable {
+
+    /**
+     * the version of the store's layout
+     */
+    public static final int FORMAT = 2;
+
+    private static final int MAGIC  = 0x534E4E46; // "SNNF"
+    private static final int HEADER = 20; // magic, format, encoding's version, settings
+    private static final int RECORD_HEADER = 8; // key and value lengths
+
+    private final FileChannel channel;
+    private final Map<ByteBuffer, ByteBuffer> index = new HashMap<>(); // keys/values are slices of the mapped file, or appended buffers
+    private long end; // the file's (valid) length
+    private long settings; // the settings the stored normal forms have been computed with
+    private int hits, misses;
+
+    private NormalFormStore(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * opens a store, creating the corresponding file if it doesn't exist; the records
+     * already in the file are indexed (without being decoded)
+     * @param file the store's file
+     * @return the store
+     * @throws IOException if an I/O error occurs
+     */
+    public static NormalFormStore open(Path file) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        NormalFormStore store = new NormalFormStore(ch);
+        try {
+            store.load();
+        }
+        catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+
+        return store;
+    }
+
+    /**
+     * maps the file and indexes its records; if the file is empty or stale it is (re)initialized
+     */
+    private void load() throws IOException {
+        long size = this.channel.size();
+        ByteBuffer map = size < HEADER ? null : this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (map == null || map.getInt(0) != MAGIC || map.getInt(4) != FORMAT || map.getInt(8) != TermCodec.VERSION
+                || map.getLong(12) != settings()) {
+            init(settings());
+            return;
+        }
+
+        this.settings = map.getLong(12);
+        int pos = HEADER;
+        while (pos + RECORD_HEADER <= size) {
+            int klen = map.getInt(pos), vlen = map.getInt(pos + 4), kpos = pos + RECORD_HEADER;
+            if (klen < 0 || vlen < 0 || (long) kpos + klen + vlen > size)
+                break; // a truncated record
+
+            this.index.put(map.slice(kpos, klen), map.slice(kpos + klen, vlen));
+            pos = kpos + klen + vlen;
+        }
+        this.end = pos;
+        if (pos < size)
+            this.channel.truncate(pos);
+    }
+
+    /**
+     * empties the file, by writing a header with the given settings
+     */
+    private void init(long settings) throws IOException {
+        this.index.clear(); // its entries might be slices of the truncated file
+        ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(FORMAT).putInt(TermCodec.VERSION).putLong(settings);
+        header.flip();
+        this.channel.truncate(0);
+        while (header.hasRemaining())
+            this.channel.write(header, header.position());
+        this.end = HEADER;
+        this.settings = settings;
+    }
+
+    /**
+     * @return the current global settings which normal forms depend on
+     */
+    private static long settings() {
+        return And.distributionThreshold();
+    }
+
+    /**
+     * clears <tt>this</tt> store if the settings have changed since its normal forms have been computed
+     */
+    private void checkSettings() {
+        long s = settings();
+        if (s != this.settings)
+            try {
+                init(s);
+            }
+            catch (IOException x) {
+                throw new UncheckedIOException(x);
+            }
+    }
+
+    /**
+     * @param e a term
+     * @return the stored normal form of the term; <tt>null</tt> if it is not stored
+     * @throws UnsupportedOperationException if the term cannot be encoded
+     */
+    public Expression get(Expression e) {
+        ByteBuffer key = ByteBuffer.wrap(TermCodec.encode(e, true));
+        synchronized (this) {
+            checkSettings();
+            return get(key);
+        }
+    }
+
+    private Expression get(ByteBuffer key) {
+        ByteBuffer value = this.index.get(key);
+        if (value != null) {
+            try {
+                Expression nf = TermCodec.decode(value.duplicate());
+                nf.setSimplified(true);
+                this.hits++;
+                return nf;
+            }
+            catch (IllegalArgumentException x) { // a stale value is treated as missing
+                this.index.remove(key);
+            }
+        }
+        this.misses++;
+
+        return null;
+    }
+
+    /**
+     * stores the normal form of a term
+     * @param e a term
+     * @param nf the normal form of the term
+     * @throws UnsupportedOperationException if the terms cannot be encoded
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+    public void put(Expression e, Expression nf) {
+        ByteBuffer key = ByteBuffer.wrap(TermCodec.encode(e, true)), value = ByteBuffer.wrap(TermCodec.encode(nf, false));
+        synchronized (this) {
+            checkSettings();
+            put(key, value);
+        }
+    }
+
+    private void put(ByteBuffer key, ByteBuffer value) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + key.remaining() + value.remaining());
+        record.putInt(key.remaining()).putInt(value.remaining()).put(key.duplicate()).put(value.duplicate()).flip();
+        try {
+            while (record.hasRemaining())
+                this.end += this.channel.write(record, this.end);
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+        this.index.put(key, value);
+    }
+
+    /**
+     * normalizes a term, by possibly retrieving its normal form from <tt>this</tt> store;
+     * otherwise, the computed normal form is stored (terms which cannot be encoded are just normalized);
+     * <tt>this</tt> store is locked only to look up and to append the normal form, which is computed
+     * outside of the lock (so the same normal form may be concurrently computed, but it is stored once;
+     * it is not stored if the settings change in the meanwhile)
+     * @param <E> the term's type
+     * @param e a term
+     * @return the normal form of the term
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+    public <E extends Expression> E normalize(E e) {
+        ByteBuffer key;
+        try {
+            key = ByteBuffer.wrap(TermCodec.encode(e, true));
+        }
+        catch (UnsupportedOperationException x) {
+            return e.normalize().cast();
+        }
+
+        long s = settings();
+        Expression nf;
+        synchronized (this) {
+            checkSettings();
+            nf = get(key);
+        }
+        if (nf == null) {
+            nf = e.normalize();
+            try {
+                ByteBuffer value = ByteBuffer.wrap(TermCodec.encode(nf, false));
+                synchronized (this) {
+                    checkSettings();
+                    if (this.settings == s && ! this.index.containsKey(key))
+                        put(key, value);
+                }
+            }
+            catch (UnsupportedOperationException x) { } // the normal form is not stored
+        }
+
+        return nf.cast();
+    }
+
+    /**
+     * @return the number of normal forms in <tt>this</tt> store
+     */
+    public synchronized int size() {
+        return this.index.size();
+    }
+
+    /**
+     * removes all the normal forms from <tt>this</tt> store (and its file)
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+    public synchronized void clear() {
+        this.index.clear();
+        try {
+            this.channel.truncate(HEADER);
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+        this.end = HEADER;
+    }
+
+    /**
+     * forces the records appended to <tt>this</tt> store to be written on disk
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void flush() throws IOException {
+        this.channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.channel.close();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "normal-form store: "+this.index.size()+" entries, "+this.hits+" hits, "+this.misses+" misses";
+    }
+}
@@ -0,0 +1,128 @@
+package wncalculus.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import wncalculus.expr.Expression;
+
+/**
+ * this class defines the binary encoding of terms (the version and the tags of term's classes),
+ * and provides the methods encoding/decoding a single term;
+ * every term is written as a tag, followed by its (class-specific) fields and operands,
+ * or as a reference to an identical term already written (see <tt>TermWriter</tt>);
+ * integers are written as variable-length (zig-zag) quantities
+ * @author Lorenzo Capra
+ */
+public final class TermCodec {
+
+    /**
+     * the version of the encoding: it must be increased whenever the encoding changes,
+     * so that the data written with a previous version are discarded
+     */
+    public static final int VERSION = 2;
+
+    // the tags
+    static final int NULL            = 0;
+    static final int REF             = 63; // a term already written (followed by its position)
+    // class-functions
+    static final int PROJECTION      = 1;
+    static final int PROJECTION_COMP = 2;
+    static final int SUBCL           = 3;
+    static final int ALL             = 4;
+    static final int EMPTY           = 5;
+    static final int SUCCESSOR       = 6;
+    static final int COMPLEMENT      = 7;
+    static final int INTERSECTION    = 8;
+    static final int UNION           = 9;
+    static final int CLASS_COMP      = 10;
+    static final int GUARDED_FUN     = 11;
+    static final int LINEAR_COMB     = 12;
+    // guards
+    static final int TRUE            = 20;
+    static final int FALSE           = 21;
+    static final int EQUALITY        = 22;
+    static final int MEMBERSHIP      = 23;
+    static final int AND             = 24;
+    static final int OR              = 25;
+    static final int NEG             = 26;
+    // function-tuples
+    static final int TUPLE           = 30;
+    static final int ALL_TUPLE       = 31;
+    static final int ALL_TUPLE1      = 32;
+    static final int EMPTY_TUPLE     = 33;
+    static final int GUARDED_TUPLE   = 34;
+    static final int TUPLE_SUM       = 35;
+    static final int TUPLE_INTER     = 36;
+    static final int TUPLE_DIFF      = 37;
+    static final int TUPLE_PRODUCT   = 38;
+    static final int TUPLE_COMP      = 39;
+    static final int TUPLE_TRANSP    = 40;
+    static final int TUPLE_PROJ      = 41;
+    static final int TUPLE_SUPPORT   = 42;
+    // bag-functions
+    static final int TUPLE_BAG       = 50;
+    static final int WN_TUPLE        = 51;
+    static final int GUARDED_ARC_FUN = 52;
+    static final int BAG_COMP        = 53;
+    static final int BAG_PRODUCT     = 54;
+    static final int BAG_SCALAR_PROD = 55;
+    static final int BAG_TRANSP      = 56;
+
+    private TermCodec() { }
+
+    /**
+     * @param e a term
+     * @param canonical canonical-form flag (see <tt>TermWriter</tt>)
+     * @return the binary encoding of the term
+     * @throws UnsupportedOperationException if the term (or any sub-term) cannot be encoded
+     */
+    public static byte[] encode(Expression e, boolean canonical) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            new TermWriter(new DataOutputStream(bytes), canonical).write(e);
+        }
+        catch (IOException x) { // cannot happen
+            throw new UncheckedIOException(x);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * checks the encoding of a term (e.g., for debugging): the term is written in both modes, then read back
+     * @param e a term
+     * @return <tt>true</tt> if and only if, in both modes, the term read back is equal to <tt>e</tt>,
+     * and its canonical encoding is the same as that of <tt>e</tt>
+     * @throws UnsupportedOperationException if the term cannot be encoded
+     */
+    public static boolean roundTrip(Expression e) {
+        for (boolean canonical : new boolean[] {false, true}) {
+            byte[] code = encode(e, canonical);
+            Expression d;
+            try {
+                d = decode(ByteBuffer.wrap(code));
+            }
+            catch (IllegalArgumentException x) {
+                return false;
+            }
+            if (! Objects.equals(d, e) || canonical && ! Arrays.equals(code, encode(d, true)))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @param buf a buffer holding an encoded term, from its position on; the position is
+     * moved past the term
+     * @return the decoded term
+     * @throws IllegalArgumentException if the buffer doesn't hold a well-formed term
+     */
+    public static Expression decode(ByteBuffer buf) {
+        return new TermReader(buf).read();
+    }
+}
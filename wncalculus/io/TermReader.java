@@ -0,0 +1,380 @@
+package wncalculus.io;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import wncalculus.classfunction.*;
+import wncalculus.color.ColorClass;
+import wncalculus.expr.*;
+import wncalculus.guard.*;
+import wncalculus.tuple.*;
+import wncalculus.wnbag.*;
+import static wncalculus.io.TermCodec.*;
+
+/**
+ * this class reads (sequences of) terms written by <tt>TermWriter</tt>, either directly from a buffer
+ * (e.g., a mapped file) or from a byte stream; terms are rebuilt by means of the usual factories, so that
+ * interned terms (e.g., projections, guards, domains) are shared with those already in memory;
+ * colour classes are interned as well; the sub-terms which are shared in the input
+ * are rebuilt once, and shared by the terms read
+ * @author Lorenzo Capra
+ */
+public final class TermReader {
+
+    private final ByteBuffer buf; // null if reading from a stream
+    private final PushbackInputStream stream;
+    private final DataInputStream in;
+    // the terms, sorts and domains read so far, in the order they have been read
+    private final List<Expression> terms = new ArrayList<>();
+    private final List<ColorClass> sorts = new ArrayList<>();
+    private final List<Domain> domains = new ArrayList<>();
+
+    /**
+     * builds a reader on a buffer
+     * @param buf the input buffer, read from its position on
+     */
+    public TermReader(ByteBuffer buf) {
+        this.buf = buf;
+        this.stream = null;
+        this.in = null;
+    }
+
+    /**
+     * builds a reader on a byte stream
+     * @param in the input stream (which should be buffered)
+     */
+    public TermReader(InputStream in) {
+        this.buf = null;
+        this.stream = new PushbackInputStream(in);
+        this.in = new DataInputStream(this.stream);
+    }
+
+    /**
+     * @return <tt>true</tt> if and only if there are more terms to read
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+    public boolean hasNext() {
+        if (this.buf != null)
+            return this.buf.hasRemaining();
+
+        try {
+            int b = this.stream.read();
+            if (b < 0)
+                return false;
+
+            this.stream.unread(b);
+            return true;
+        }
+        catch (IOException x) {
+            throw new UncheckedIOException(x);
+        }
+    }
+
+    /**
+     * reads a term
+     * @return the term (possibly <tt>null</tt>)
+     * @throws IllegalArgumentException if the input doesn't hold a well-formed term
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+    public Expression read() {
+        try {
+            return readTerm();
+        }
+        catch (BufferUnderflowException | ClassCastException | IllegalDomain | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("malformed term encoding", e);
+        }
+    }
+
+    private <E extends Expression> E readTerm() {
+        int tag = readInt();
+        if (tag == REF)
+            return (E) this.terms.get(readInt());
+
+        Expression e = readTerm(tag);
+        if (e != null)
+            this.terms.add(e);
+
+        return (E) e;
+    }
+
+    private Expression readTerm(int tag) {
+        switch (tag) {
+            case NULL :
+                return null;
+            case PROJECTION : {
+                int i = readInt(), succ = readInt();
+                return Projection.builder(i, succ, readSort());
+            }
+            case PROJECTION_COMP :
+                return ProjectionComp.factory(readTerm());
+            case SUBCL : {
+                int i = readInt();
+                return Subcl.factory(i, readSort());
+            }
+            case ALL :
+                return All.getInstance(readSort());
+            case EMPTY :
+                return Empty.getInstance(readSort());
+            case SUCCESSOR : {
+                int k = readInt();
+                return Successor.factory(k, readTerm());
+            }
+            case COMPLEMENT :
+                return Complement.factory(readTerm());
+            case INTERSECTION :
+                return Intersection.factory(readAll(), false);
+            case UNION : {
+                boolean disjoined = readBoolean();
+                return Union.factory(readAll(), false, disjoined);
+            }
+            case CLASS_COMP :
+                return new ClassComposition(readTerm(), readTerm(), false);
+            case GUARDED_FUN : {
+                readTerm(); // the filter is meaningless
+                return new GuardedFunction(readTerm(), readTerm());
+            }
+            case LINEAR_COMB : {
+                ColorClass cc = readSort();
+                boolean disjoined = readBoolean();
+                Map<ElementaryFunction, Integer> m = readBag();
+                return m.isEmpty() ? new LinearComb(cc) : new LinearComb(m, disjoined);
+            }
+            case TRUE :
+                return True.getInstance(readDomain());
+            case FALSE :
+                return False.getInstance(readDomain());
+            case EQUALITY : {
+                Projection p1 = readTerm(), p2 = readTerm();
+                boolean sign = readBoolean();
+                return Equality.builder(p1, p2, sign, readDomain());
+            }
+            case MEMBERSHIP : {
+                Projection p = readTerm();
+                Subcl sc = readTerm();
+                boolean sign = readBoolean();
+                return Membership.build(p, sc, sign, readDomain());
+            }
+            case AND :
+                return And.factory(readAll(), false);
+            case OR : {
+                boolean disjoined = readBoolean();
+                return Or.factory(readAll(), false, disjoined);
+            }
+            case NEG :
+                return Neg.factory(readTerm());
+            case TUPLE : {
+                Guard f = readTerm();
+                List<SetFunction> l = readAll();
+                Guard g = readTerm();
+                return new Tuple(f, l, g, readDomain());
+            }
+            case ALL_TUPLE :
+                return AllTuple.getInstance(readDomain(), readDomain());
+            case ALL_TUPLE1 :
+                return AllTuple1.getInstance(readDomain(), readDomain());
+            case EMPTY_TUPLE :
+                return EmptyTuple.getInstance(readDomain(), readDomain());
+            case GUARDED_TUPLE :
+                return new GuardedTuple(readTerm(), readTerm(), readTerm());
+            case TUPLE_SUM : {
+                boolean disjoined = readBoolean();
+                return TupleSum.factory(readAll(), false, disjoined);
+            }
+            case TUPLE_INTER :
+                return TupleIntersection.factory(readAll(), false);
+            case TUPLE_DIFF :
+                return TupleDiff.factory(readTerm(), readTerm(), false);
+            case TUPLE_PRODUCT :
+                return TupleProduct.factory(readAll(), false);
+            case TUPLE_COMP :
+                return new TupleComposition(readTerm(), readTerm(), false);
+            case TUPLE_TRANSP :
+                return new TupleTranspose(readTerm());
+            case TUPLE_PROJ : {
+                int k = readInt();
+                return new TupleProjection(readTerm(), k);
+            }
+            case TUPLE_SUPPORT :
+                return new TupleSupport(readTerm());
+            case TUPLE_BAG : {
+                Domain d = readDomain(), cd = readDomain();
+                Map<BagfunctionTuple, Integer> m = readBag();
+                return m.isEmpty() ? new TupleBag(d, cd) : new TupleBag(m);
+            }
+            case WN_TUPLE : {
+                Guard f = readTerm();
+                List<LinearComb> l = readAll();
+                Guard g = readTerm();
+                return new WNtuple(f, l, g, readDomain(), false);
+            }
+            case GUARDED_ARC_FUN :
+                return new GuardedArcFunction(readTerm(), readTerm(), readTerm());
+            case BAG_COMP :
+                return new TupleBagComp(readTerm(), readTerm());
+            case BAG_PRODUCT :
+                return TupleBagProduct.factory(readAll(), false);
+            case BAG_SCALAR_PROD : {
+                int k = readInt();
+                return TupleBagScalarProd.factory(readTerm(), k);
+            }
+            case BAG_TRANSP :
+                return new TupleBagTranspose(readTerm());
+            default :
+                throw new IllegalArgumentException("unknown tag: "+tag);
+        }
+    }
+
+    /**
+     * reads a collection of terms
+     * @return the list of terms, in the order they have been written
+     */
+    private <E extends Expression> List<E> readAll() {
+        int n = readSize();
+        List<E> l = new ArrayList<>(Math.min(n, 16));
+        for (int i = 0; i < n; i++)
+            l.add(readTerm());
+
+        return l;
+    }
+
+    /**
+     * reads the (element, multiplicity) pairs of a bag
+     */
+    private <E extends Expression> Map<E, Integer> readBag() {
+        int n = readSize();
+        Map<E, Integer> m = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            E e = readTerm();
+            m.put(e, readInt());
+        }
+
+        return m;
+    }
+
+    private Domain readDomain() {
+        int ref = readInt();
+        if (ref > 0)
+            return this.domains.get(ref - 1);
+
+        int n = readSize();
+        Map<Sort, Integer> m = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Sort s = readSort();
+            m.put(s, readInt());
+        }
+        Domain d = Domain.of(m);
+        this.domains.add(d);
+
+        return d;
+    }
+
+    private ColorClass readSort() {
+        int ref = readInt();
+        if (ref > 0)
+            return this.sorts.get(ref - 1);
+
+        String name = readString();
+        boolean ordered = readBoolean();
+        Interval[] constraints = new Interval[readSize()];
+        for (int i = 0; i < constraints.length; i++) {
+            long p = readLong();
+            int lb = Interval.lb(p), ub = Interval.ub(p);
+            if (lb < 0 || ub < -1 || ub != -1 && ub < lb) // NONE (i.e., an empty interval) included
+                throw new IllegalArgumentException("bad interval: "+p);
+
+            constraints[i] = Interval.of(p);
+        }
+        ColorClass cc = ColorClass.intern(new ColorClass(name, constraints, ordered));
+        this.sorts.add(cc);
+
+        return cc;
+    }
+
+    private String readString() {
+        byte[] b = new byte[readSize()];
+        if (this.buf != null)
+            this.buf.get(b);
+        else
+            try {
+                this.in.readFully(b);
+            }
+            catch (IOException x) {
+                throw ioError(x);
+            }
+
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    /**
+     * reads a non-negative integer (e.g., a size), checking it against the remaining bytes
+     */
+    private int readSize() {
+        int n = readInt();
+        if (n < 0 || this.buf != null && n > this.buf.remaining() || this.buf == null && n > MAX_STREAM_SIZE)
+            throw new IllegalArgumentException("bad size: "+n);
+
+        return n;
+    }
+
+    private static final int MAX_STREAM_SIZE = 1 << 24; // a bound on the sizes read from streams
+
+    private byte readByte() {
+        if (this.buf != null)
+            return this.buf.get();
+
+        try {
+            return this.in.readByte();
+        }
+        catch (IOException x) {
+            throw ioError(x);
+        }
+    }
+
+    private long readLong() {
+        if (this.buf != null)
+            return this.buf.getLong();
+
+        try {
+            return this.in.readLong();
+        }
+        catch (IOException x) {
+            throw ioError(x);
+        }
+    }
+
+    /**
+     * a premature end of stream means a malformed input, any other error is unchecked
+     */
+    private static RuntimeException ioError(IOException x) {
+        return x instanceof EOFException ? new BufferUnderflowException() : new UncheckedIOException(x);
+    }
+
+    /**
+     * reads a variable-length zig-zag integer
+     */
+    private int readInt() {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = readByte();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0)
+                break;
+
+            if (shift == 28)
+                throw new IllegalArgumentException("bad integer encoding");
+        }
+
+        return v >>> 1 ^ -(v & 1);
+    }
+}
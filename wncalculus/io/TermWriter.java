@@ -0,0 +1,424 @@
+package wncalculus.io;
+
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import wncalculus.bagexpr.Bag;
+import wncalculus.classfunction.*;
+import wncalculus.color.ColorClass;
+import wncalculus.expr.*;
+import wncalculus.guard.*;
+import wncalculus.tuple.*;
+import wncalculus.wnbag.*;
+import static wncalculus.io.TermCodec.*;
+
+/**
+ * this class writes terms in binary form (the encoding is defined by <tt>TermCodec</tt>), as a stream:
+ * the terms (as well as sorts and domains) already written on the stream are referred to by their
+ * position, so that shared sub-terms are written once, and a sequence of terms is written as a DAG;
+ * in canonical mode, the operands of commutative operators and the elements of bags are written in a
+ * (deterministic) order, so that equal terms are written the same way, e.g., to use the encoding as a key;
+ * for the same reason, canonical encodings don't depend on the context, i.e., nothing is shared
+ * @author Lorenzo Capra
+ */
+public final class TermWriter {
+
+    private final DataOutput out;
+    private final boolean canonical;
+    // the terms, sorts and domains already written, mapped to their positions (terms are shared if identical)
+    private final Map<Expression, Integer> terms = new IdentityHashMap<>();
+    private final Map<Sort, Integer> sorts = new HashMap<>();
+    private final Map<Domain, Integer> domains = new HashMap<>();
+
+    /**
+     * builds a writer
+     * @param out the output
+     * @param canonical canonical-form flag
+     */
+    public TermWriter(DataOutput out, boolean canonical) {
+        this.out = out;
+        this.canonical = canonical;
+    }
+
+    /**
+     * builds a (non canonical) writer on a byte stream
+     * @param out the output stream (which should be buffered)
+     */
+    public TermWriter(OutputStream out) {
+        this(new DataOutputStream(out), false);
+    }
+
+    /**
+     * writes a term
+     * @param e a term (possibly <tt>null</tt>, e.g., a missing guard)
+     * @return <tt>this</tt> writer
+     * @throws IOException if an I/O error occurs
+     * @throws UnsupportedOperationException if the term (or any sub-term) cannot be encoded
+     */
+    public TermWriter write(Expression e) throws IOException {
+        if (e == null) {
+            writeInt(NULL);
+            return this;
+        }
+
+        Integer ref = this.terms.get(e);
+        if (ref != null) {
+            writeInt(REF);
+            writeInt(ref);
+            return this;
+        }
+
+        if (e instanceof ClassFunction)
+            writeClassFunction((ClassFunction) e);
+        else if (e instanceof Guard)
+            writeGuard((Guard) e);
+        else if (e instanceof FunctionTuple)
+            writeTuple((FunctionTuple) e);
+        else if (e instanceof BagfunctionTuple)
+            writeBagTuple((BagfunctionTuple) e);
+        else
+            throw unsupported(e);
+        if (! this.canonical)
+            this.terms.put(e, this.terms.size());
+
+        return this;
+    }
+
+    /**
+     * flushes the underlying output, if it is flushable
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        if (this.out instanceof Flushable)
+            ((Flushable) this.out).flush();
+    }
+
+    private void writeClassFunction(ClassFunction f) throws IOException {
+        if (f instanceof Projection) {
+            Projection p = (Projection) f;
+            writeInt(PROJECTION);
+            writeInt(p.getIndex());
+            writeInt(p.getSucc());
+            writeSort(p.getSort());
+        }
+        else if (f instanceof ProjectionComp) {
+            writeInt(PROJECTION_COMP);
+            write(((ProjectionComp) f).getArg());
+        }
+        else if (f instanceof Subcl) {
+            writeInt(SUBCL);
+            writeInt(((Subcl) f).index());
+            writeSort(f.getSort());
+        }
+        else if (f instanceof All || f instanceof Empty) {
+            writeInt(f instanceof All ? ALL : EMPTY);
+            writeSort(f.getSort());
+        }
+        else if (f instanceof Successor) {
+            writeInt(SUCCESSOR);
+            writeInt(((Successor) f).getExp());
+            write(((Successor) f).getArg());
+        }
+        else if (f instanceof Complement) {
+            writeInt(COMPLEMENT);
+            write(((Complement) f).getArg());
+        }
+        else if (f instanceof Intersection) {
+            writeInt(INTERSECTION);
+            writeAll(((Intersection) f).getArgs(), false);
+        }
+        else if (f instanceof Union) {
+            writeInt(UNION);
+            writeBoolean(((Union) f).disjoined());
+            writeAll(((Union) f).getArgs(), false);
+        }
+        else if (f instanceof ClassComposition) {
+            writeInt(CLASS_COMP);
+            write(((ClassComposition) f).left());
+            write(((ClassComposition) f).right());
+        }
+        else if (f instanceof GuardedFunction) {
+            writeInt(GUARDED_FUN);
+            writeGuarded((GuardedFunction) f);
+        }
+        else if (f instanceof LinearComb) {
+            LinearComb lc = (LinearComb) f;
+            writeInt(LINEAR_COMB);
+            writeSort(lc.getSort());
+            writeBoolean(lc.disjoined());
+            writeBag(lc);
+        }
+        else
+            throw unsupported(f);
+    }
+
+    private void writeGuard(Guard g) throws IOException {
+        if (g instanceof True || g instanceof False) {
+            writeInt(g instanceof True ? TRUE : FALSE);
+            writeDomain(g.getDomain());
+        }
+        else if (g instanceof Equality || g instanceof Membership) {
+            ElementaryGuard eg = (ElementaryGuard) g;
+            writeInt(g instanceof Equality ? EQUALITY : MEMBERSHIP);
+            write(eg.getArg1());
+            write(eg.getArg2());
+            writeBoolean(eg.sign());
+            writeDomain(eg.getDomain());
+        }
+        else if (g instanceof And) {
+            writeInt(AND);
+            writeAll(((And) g).getArgs(), false);
+        }
+        else if (g instanceof Or) {
+            writeInt(OR);
+            writeBoolean(((Or) g).disjoined());
+            writeAll(((Or) g).getArgs(), false);
+        }
+        else if (g instanceof Neg) {
+            writeInt(NEG);
+            write(((Neg) g).getArg());
+        }
+        else
+            throw unsupported(g);
+    }
+
+    private void writeTuple(FunctionTuple t) throws IOException {
+        if (t instanceof Tuple) {
+            writeInt(TUPLE);
+            writeAbstractTuple((Tuple) t);
+        }
+        else if (t instanceof AllTuple || t instanceof AllTuple1 || t instanceof EmptyTuple) {
+            writeInt(t instanceof AllTuple ? ALL_TUPLE : t instanceof AllTuple1 ? ALL_TUPLE1 : EMPTY_TUPLE);
+            writeDomain(t.getCodomain());
+            writeDomain(t.getDomain());
+        }
+        else if (t instanceof GuardedTuple) {
+            writeInt(GUARDED_TUPLE);
+            writeGuarded((GuardedTuple) t);
+        }
+        else if (t instanceof TupleSum) {
+            writeInt(TUPLE_SUM);
+            writeBoolean(((TupleSum) t).disjoined());
+            writeAll(((TupleSum) t).getArgs(), false);
+        }
+        else if (t instanceof TupleIntersection) {
+            writeInt(TUPLE_INTER);
+            writeAll(((TupleIntersection) t).getArgs(), false);
+        }
+        else if (t instanceof TupleProduct) {
+            writeInt(TUPLE_PRODUCT);
+            writeAll(((TupleProduct) t).getArgs(), true);
+        }
+        else if (t instanceof TupleDiff || t instanceof TupleComposition) {
+            TwoArgs<? extends FunctionTuple, ?> op = (TwoArgs<? extends FunctionTuple, ?>) t;
+            writeInt(t instanceof TupleDiff ? TUPLE_DIFF : TUPLE_COMP);
+            write(op.left());
+            write(op.right());
+        }
+        else if (t instanceof TupleTranspose) {
+            writeInt(TUPLE_TRANSP);
+            write(((TupleTranspose) t).getArg());
+        }
+        else if (t instanceof TupleProjection) {
+            writeInt(TUPLE_PROJ);
+            writeInt(((TupleProjection) t).bound());
+            write(((TupleProjection) t).getArg());
+        }
+        else if (t instanceof TupleSupport) {
+            writeInt(TUPLE_SUPPORT);
+            write(((TupleSupport) t).getArg());
+        }
+        else
+            throw unsupported(t);
+    }
+
+    private void writeBagTuple(BagfunctionTuple b) throws IOException {
+        if (b instanceof TupleBag) {
+            writeInt(TUPLE_BAG);
+            writeDomain(b.getDomain());
+            writeDomain(b.getCodomain());
+            writeBag((TupleBag) b);
+        }
+        else if (b instanceof WNtuple) {
+            writeInt(WN_TUPLE);
+            writeAbstractTuple((WNtuple) b);
+        }
+        else if (b instanceof GuardedArcFunction) {
+            writeInt(GUARDED_ARC_FUN);
+            writeGuarded((GuardedArcFunction) b);
+        }
+        else if (b instanceof TupleBagComp) {
+            writeInt(BAG_COMP);
+            write(((TupleBagComp) b).left());
+            write(((TupleBagComp) b).right());
+        }
+        else if (b instanceof TupleBagProduct) {
+            writeInt(BAG_PRODUCT);
+            writeAll(((TupleBagProduct) b).getArgs(), true);
+        }
+        else if (b instanceof TupleBagScalarProd) {
+            writeInt(BAG_SCALAR_PROD);
+            writeInt(((TupleBagScalarProd) b).k());
+            write(((TupleBagScalarProd) b).getArg());
+        }
+        else if (b instanceof TupleBagTranspose) {
+            writeInt(BAG_TRANSP);
+            write(((TupleBagTranspose) b).getArg());
+        }
+        else
+            throw unsupported(b);
+    }
+
+    /**
+     * writes the filter, the components, the guard and the domain of a tuple
+     */
+    private void writeAbstractTuple(AbstractTuple<?, ?> t) throws IOException {
+        write(t.filter());
+        writeAll(t.getComponents(), true);
+        write(t.guard());
+        writeDomain(t.getDomain());
+    }
+
+    private void writeGuarded(GuardedExpr<?> g) throws IOException {
+        write(g.filter());
+        write(g.expr());
+        write(g.guard());
+    }
+
+    /**
+     * writes a collection of terms; in canonical mode, the terms of an unordered collection are sorted
+     * by their (canonical) encodings
+     */
+    private void writeAll(Collection<? extends Expression> c, boolean ordered) throws IOException {
+        writeInt(c.size());
+        if (ordered || ! this.canonical || c.size() < 2) {
+            for (Expression e : c)
+                write(e);
+        }
+        else {
+            byte[][] codes = new byte[c.size()][];
+            int i = 0;
+            for (Expression e : c)
+                codes[i++] = encode(e, true);
+            Arrays.sort(codes, Arrays::compare);
+            for (byte[] code : codes)
+                this.out.write(code);
+        }
+    }
+
+    /**
+     * writes the (element, multiplicity) pairs of a bag; in canonical mode, pairs are sorted by the
+     * (canonical) encodings of elements
+     */
+    private void writeBag(Bag<?> b) throws IOException {
+        Map<? extends Expression, Integer> m = b.asMap();
+        writeInt(m.size());
+        if (! this.canonical || m.size() < 2) {
+            for (Map.Entry<? extends Expression, Integer> x : m.entrySet()) {
+                write(x.getKey());
+                writeInt(x.getValue());
+            }
+        }
+        else {
+            byte[][] codes = new byte[m.size()][];
+            int[] mults = new int[m.size()];
+            Integer[] ord = new Integer[m.size()];
+            int i = 0;
+            for (Map.Entry<? extends Expression, Integer> x : m.entrySet()) {
+                codes[i] = encode(x.getKey(), true);
+                mults[i] = x.getValue();
+                ord[i] = i++;
+            }
+            Arrays.sort(ord, (x, y) -> Arrays.compare(codes[x], codes[y]));
+            for (int j : ord) {
+                this.out.write(codes[j]);
+                writeInt(mults[j]);
+            }
+        }
+    }
+
+    /**
+     * writes a domain, either as a reference (a positive position) or as zero
+     * followed by a sequence of (sort, multiplicity) pairs
+     */
+    private void writeDomain(Domain d) throws IOException {
+        if (shared(d, this.domains))
+            return;
+
+        Map<? extends Sort, Integer> m = d.asMap();
+        writeInt(m.size());
+        for (Map.Entry<? extends Sort, Integer> x : m.entrySet()) {
+            writeSort(x.getKey());
+            writeInt(x.getValue());
+        }
+    }
+
+    /**
+     * writes a colour class, either as a reference (a positive position) or as zero
+     * followed by its name, order flag and (packed) constraints
+     */
+    private void writeSort(Sort s) throws IOException {
+        if (! (s instanceof ColorClass))
+            throw new UnsupportedOperationException("cannot encode the sort "+s);
+
+        if (shared(s, this.sorts))
+            return;
+
+        ColorClass cc = (ColorClass) s;
+        writeString(cc.name());
+        writeBoolean(cc.isOrdered());
+        Interval[] constraints = cc.getConstraints();
+        writeInt(constraints.length);
+        for (Interval i : constraints)
+            this.out.writeLong(i.packed());
+    }
+
+    /**
+     * writes the reference to an object (a sort or a domain) if it has been already written;
+     * otherwise writes zero, and (unless in canonical mode) records the object
+     * @return <tt>true</tt> if and only if a reference has been written
+     */
+    private <K> boolean shared(K x, Map<K, Integer> written) throws IOException {
+        Integer ref = written.get(x);
+        if (ref != null) {
+            writeInt(ref + 1);
+            return true;
+        }
+
+        writeInt(0);
+        if (! this.canonical)
+            written.put(x, written.size());
+
+        return false;
+    }
+
+    private void writeString(String str) throws IOException {
+        byte[] b = str.getBytes(StandardCharsets.UTF_8);
+        writeInt(b.length);
+        this.out.write(b);
+    }
+
+    private void writeBoolean(boolean b) throws IOException {
+        this.out.writeByte(b ? 1 : 0);
+    }
+
+    /**
+     * writes an integer as a variable-length zig-zag quantity (small values take one byte)
+     */
+    private void writeInt(int k) throws IOException {
+        int v = k << 1 ^ k >> 31;
+        while ((v & ~0x7F) != 0) {
+            this.out.writeByte(v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        this.out.writeByte(v);
+    }
+
+    private static UnsupportedOperationException unsupported(Expression e) {
+        return new UnsupportedOperationException("cannot encode the term "+e+" ("+e.getClass().getSimpleName()+')');
+    }
+}
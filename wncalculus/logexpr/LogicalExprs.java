@@ -1,6 +1,9 @@
 package wncalculus.logexpr;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * LogicalExprs is a collector of generic algorithms for the
@@ -9,6 +12,43 @@ import java.util.*;
  */
 public class LogicalExprs {
     
+    /* the collection size from which pairwise checks are carried out in parallel
+       (by default parallelism is disabled, since term builders share non-synchronized caches) */
+    private static volatile int parallel_threshold = Integer.MAX_VALUE;
+    // the number of pairs checked sequentially by a single fork/join task
+    private static final int PAIRS_PER_TASK = 64;
+    
+    /**
+     * sets the size of collections from which pairwise checks (disjointness, complementarity,
+     * containment) are split across the common fork/join pool; below it they are sequential
+     * @param threshold the parallel threshold (a value less than two is meant as two)
+     */
+    public static void setParallelThreshold(int threshold) {
+        parallel_threshold = Math.max(2, threshold);
+    }
+    
+    /**
+     * disables the parallel mode of pairwise checks
+     */
+    public static void setSequential() {
+        parallel_threshold = Integer.MAX_VALUE;
+    }
+    
+    /**
+     * @return the collection size from which pairwise checks are carried out in parallel
+     */
+    public static int parallelThreshold() {
+        return parallel_threshold;
+    }
+    
+    /**
+     * @param size the size of a collection
+     * @return <code>true</code> if and only if checks on a collection of the specified size are
+     * carried out in parallel
+     */
+    static boolean parallel(int size) {
+        return size >= parallel_threshold;
+    }
     
     /**
      * syntactically checks for the presence of complementary terms in a set of expressions
@@ -17,7 +57,7 @@ public class LogicalExprs {
      * @return <code>true</code> if and only if the passed list contains complementary terms
      */
     public static boolean checkComplementary(Collection<? extends LogicalExpr> argset) {
-        return argset.stream().anyMatch(x -> ( x instanceof NotOp && argset.contains(((NotOp)x). getArg()) ));
+        return (parallel(argset.size()) ? argset.parallelStream() : argset.stream()).anyMatch(x -> ( x instanceof NotOp && argset.contains(((NotOp)x). getArg()) ));
     }
    
           
@@ -30,7 +70,7 @@ public class LogicalExprs {
      * @return <code>true</code> if and only if the first list is contained in the second list
      */
     public static <E extends LogicalExpr> boolean contained (Collection< ? extends E > l1, List<? extends E> l2) {
-        return l1.stream().allMatch( e -> contained( e, l2));
+        return (parallel(l1.size()) ? l1.parallelStream() : l1.stream()).allMatch( e -> contained( e, l2));
     }
     
     /**
@@ -136,13 +176,21 @@ public class LogicalExprs {
     }
     
     /**
-     * checks whether a list of terms are pairwise disjoint
+     * checks whether a list of terms are pairwise disjoint;
+     * if the list size is over the parallel threshold the pair space is split across
+     * the common fork/join pool, and the search stops as soon as two overlapping terms are found
      * @param args the specified list
      * @return <tt>true</tt> if and only if the terms of the specified list are pairwise disjoint
     */
     public static boolean disjoined(Collection<? extends LogicalExpr> args)  {
         int size = args.size();
         List<? extends LogicalExpr> list_of_args = args instanceof List<?> ? (List<? extends LogicalExpr>) args : new ArrayList<>(args);
+        if (parallel(size)) {
+            AtomicBoolean overlap = new AtomicBoolean();
+            ForkJoinPool.commonPool().invoke(new OverlapSearch(list_of_args, 0, (long) size * (size - 1) / 2, overlap));
+            return ! overlap.get();
+        }
+        
         for (int i = 0; i < size - 1; i++) 
             for (int j = i + 1; j < size; j++) 
                 if (! list_of_args.get(i).disjoined( list_of_args.get(j) )) { 
@@ -151,6 +199,55 @@ public class LogicalExprs {
                 
         return true;
     }
+    
+    /**
+     * fork/join task looking for a pair of overlapping terms in a range of the pair space
+     * (pairs (i,j), i &lt; j, are enumerated row by row); the shared flag is used both
+     * to signal the outcome and to cancel the pending sub-tasks
+     */
+    private static final class OverlapSearch extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final List<? extends LogicalExpr> list;
+        private final long from, to; // the pair range [from, to)
+        private final AtomicBoolean overlap;
+
+        OverlapSearch(List<? extends LogicalExpr> list, long from, long to, AtomicBoolean overlap) {
+            this.list = list;
+            this.from = from;
+            this.to   = to;
+            this.overlap = overlap;
+        }
+        
+        @Override
+        protected void compute() {
+            if (this.overlap.get())
+                return;
+            
+            if (this.to - this.from > PAIRS_PER_TASK) {
+                long mid = (this.from + this.to) >>> 1;
+                invokeAll(new OverlapSearch(this.list, this.from, mid, this.overlap), new OverlapSearch(this.list, mid, this.to, this.overlap));
+            }
+            else {
+                final int size = this.list.size();
+                int i = 0, j;
+                long k = this.from;
+                for (long row = size - 1; k >= row; row--, i++) // we find out the first pair of the range
+                    k -= row;
+                j = i + 1 + (int) k;
+                for (long p = this.from; p < this.to && ! this.overlap.get(); p++) {
+                    if (! this.list.get(i).disjoined( this.list.get(j) )) {
+                        this.overlap.set(true);
+                        return;
+                    }
+                    if (++j == size) {
+                        j = ++i + 1;
+                    }
+                }
+            }
+        }
+    }
 
    
 }
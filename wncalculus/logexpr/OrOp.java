@@ -70,6 +70,8 @@ public interface OrOp<E extends LogicalExpr> extends LogicalExpr, N_aryOp<E>  {
      * 
      * checks the equivalence of this term to the "truth" constant in an optimized way
      * WARNING: this method should never be invoked from inside the fixed-point simplification algorithm!!
+     * the containment checks of the complement's terms are done in parallel if their number is over
+     * <code>LogicalExprs.parallelThreshold()</code>
      * @return <code>true</code> if and only if <code>this</code> is equivalent to TRUE  
      */
     @Override
@@ -6,6 +6,8 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import wncalculus.classfunction.*;
 import wncalculus.color.ColorClass;
 import wncalculus.expr.*;
@@ -26,6 +28,7 @@ public abstract class AbstractTuple<E extends ClassFunction, F extends Parametri
     //cache-efficiency fields
     private String   str; 
     private List<? extends E>  components;
+    private SortedMap<ColorClass, AbstractTuple<E,F>> one_sorted_parts;
     private boolean  simplified;
         
     /**
@@ -71,7 +74,7 @@ public abstract class AbstractTuple<E extends ClassFunction, F extends Parametri
             cd.put(cc, st.size());
         } 
         
-        this.codomain = new Domain(cd);
+        this.codomain = Domain.of(cd);
         if (check && f != null && ! this.codomain.equals(f.getDomain())) {
             System.err.println("lista funzioni: "+l+"\nfiltro: "+f.toStringDetailed());
             throw new IllegalDomain (this.codomain+" and "+f.getDomain()+ ": (co)domains are incompatible!");
@@ -289,16 +292,32 @@ public abstract class AbstractTuple<E extends ClassFunction, F extends Parametri
     
     @Override
     public final String toString () {
-        if (this.str == null) {
-            String t = "<";
-            t = getComponents().stream().map( x -> x.toString() + ',').reduce(t, String::concat);
-            t = t.substring(0,t.length()-1)+'>';
-            this.str = (filter == null ? "" : "[" + filter + ']')  + t + (guard == null ? "" : "[" +guard + ']');
-        }
+        if (this.str == null) 
+            this.str = Printer.render(this::printTuple);
         
         return this.str;
     }
     
+    @Override
+    public final void print(Printer p) {
+        if (this.str != null)
+            p.append(this.str);
+        else
+            printTuple(p);
+    }
+    
+    private void printTuple(Printer p) {
+        if (this.filter != null)
+            p.append('[').print(this.filter).append(']');
+        p.append('<');
+        List<? extends E> comps = getComponents();
+        for (int i = 0; i < comps.size(); i++) 
+            (i > 0 ? p.append(',') : p).print(comps.get(i));
+        p.append('>');
+        if (this.guard != null)
+            p.append('[').print(this.guard).append(']');
+    }
+    
     @Override
     public final boolean equals(Object o) {
         boolean res = super.equals(o);
@@ -371,10 +390,11 @@ public abstract class AbstractTuple<E extends ClassFunction, F extends Parametri
                 }
             }
             
-            if (guard != null)
-                for (Equality eq: guard.equalityMap().getOrDefault(c, Collections.emptyMap()).getOrDefault(true, Collections.emptySortedSet()))
-                    if (ClassFunction.replace(args_c, eq)) 
-                       changed = true;
+            if (guard != null) { // symbols are replaced in one pass, according to the guard's equalities
+                SortedSet<Equality> eqs = guard.equalityMap().getOrDefault(c, Collections.emptyMap()).getOrDefault(true, Collections.emptySortedSet());
+                if (! eqs.isEmpty() && Substitution.of(c, eqs).apply(args_c)) 
+                   changed = true;
+            }
 
             tuplecopy.put(c, args_c);
         }
@@ -387,6 +407,14 @@ public abstract class AbstractTuple<E extends ClassFunction, F extends Parametri
         return cast();
     }
     
+    /**
+     * @return the tuple (expressed as a map) the filter of <code>this</code> tuple is bound to,
+     * when computing split-delimiters; <code>null</code> (default) means no binding
+     */
+    Map<ColorClass, ? extends List<? extends ClassFunction>> filterBinding() {
+        return null;
+    }
+    
      /** @return the split-delimiters map of <code>this</code> tuple, separately considering
       * (in the order) the filters and the tuple'fc components
      */
@@ -396,7 +424,7 @@ public abstract class AbstractTuple<E extends ClassFunction, F extends Parametri
         Map<Sort,Integer>  delims = g != null ? g.splitDelimiters() : new HashMap<>();
         if ( delims.isEmpty()) {
             if (f != null && ! f.isConstant() ) 
-                delims = f.splitDelimiters();
+                delims = f.splitDelimiters(filterBinding());
             if (delims.isEmpty()) { //tuple components are considered
                 SortedMap<ColorClass, List<? extends E>> m = getHomSubTuples();
                 for ( Map.Entry<ColorClass, List<? extends E>> x : m.entrySet()) 
@@ -450,15 +478,83 @@ public abstract class AbstractTuple<E extends ClassFunction, F extends Parametri
         if (guard == null)
             return cast();
         
+        return compositionOf(withoutGuard(), right.build(GuardedExpr.join(guard, filter)).cast()); //this tuple's guard moved into the right's filter
+    }
+    
+    /**
+     * builds the composition between two operands, using the composition operator of <tt>this</tt> tuple's type
+     * @param left the left operand
+     * @param right the right operand
+     * @return the composition <tt>left . right</tt>
+     */
+    private F compositionOf (F left, F right) {
         try {
             Constructor<? extends CompositionOp<F>> constructor = tkComp().getConstructor(type(), type());
-            return constructor.newInstance(withoutGuard(), right.build(GuardedExpr.join(guard, filter))).cast(); //this tuple's guard moved into the right's filter
+            return constructor.newInstance(left, right).cast(); 
         } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
             Logger.getLogger(AbstractTuple.class.getName()).log(Level.SEVERE, null, ex);
             throw new Error();
         }
     }
     
+    /**
+     * @return the form of <tt>this</tt> tuple used as left operand of a composition;
+     * by default, <tt>this</tt>
+     */
+    protected AbstractTuple<E,F> composableForm() {
+        return this;
+    }
+    
+    /**
+     * composes <tt>this</tt> tuple with each tuple of a list: the left operand is normalized once,
+     * and its decomposition (into one-sorted sub-tuples, and the forms derived from them)
+     * is shared by all compositions, which may be solved in parallel
+     * (the terms built meanwhile are interned in a thread-safe way)
+     * @param rights a list of right operands, whose codomain is the domain of <tt>this</tt> tuple
+     * @param parallel parallel-execution flag
+     * @return the list of normalized compositions, in the same order as the right operands
+     * @throws IllegalDomain if the codomain of some right operand doesn't match the domain of <tt>this</tt>
+     */
+    public final List<F> composeAll(List<? extends F> rights, boolean parallel) {
+        F nl = (F) normalize();
+        if (nl instanceof AbstractTuple<?,?>) {
+            AbstractTuple<E,F> t = ((AbstractTuple<E,F>) nl).composableForm();
+            t.oneSortedParts(); // computed once, before possibly forking
+            nl = t.cast();
+        }
+        final F left = nl;
+        Stream<? extends F> s = parallel ? rights.parallelStream() : rights.stream();
+        
+        return s.map(r -> (F) compositionOf(left, r).normalize()).collect(Collectors.toList());
+    }
+    
+    /**
+     * composes <tt>this</tt> tuple with each tuple of a list, sequentially
+     * @param rights a list of right operands
+     * @return the list of normalized compositions, in the same order as the right operands
+     * @see #composeAll(java.util.List, boolean) 
+     */
+    public final List<F> composeAll(List<? extends F> rights) {
+        return composeAll(rights, false);
+    }
+    
+    /**
+     * @return the map between colors and the one-sorted sub-tuples (without guard and filter,
+     * with the same domain as <tt>this</tt>) composing <tt>this</tt> tuple, that are used
+     * as left operands when splitting a composition; the map is computed once
+     */
+    public final SortedMap<ColorClass, AbstractTuple<E,F>> oneSortedParts() {
+        if (this.one_sorted_parts == null) {
+            SortedMap<ColorClass, AbstractTuple<E,F>> parts = new TreeMap<>();
+            this.hom_parts.forEach( (cc, list) -> {
+                parts.put(cc, build(null, Domain.of(cc , list.size()), Util.singleSortedMap(cc, list), null, this.domain));
+            });
+            this.one_sorted_parts = Collections.unmodifiableSortedMap(parts);
+        }
+        
+        return this.one_sorted_parts;
+    }
+    
     /**
      * 
      * @return the map of color-homogeneous sub-tuples (of the same domain)
@@ -471,14 +567,14 @@ public abstract class AbstractTuple<E extends ClassFunction, F extends Parametri
             getHomSubTuples().entrySet().forEach(tuple -> {
                 ColorClass cc = tuple.getKey();
                 List<? extends E> comp = tuple.getValue();
-                subtuples.put(cc, build(null, new Domain(cc,comp.size()), Util.singleSortedMap(cc, comp), guard, null));
+                subtuples.put(cc, build(null, Domain.of(cc,comp.size()), Util.singleSortedMap(cc, comp), guard, null));
             });
         }
         else if (filter instanceof ElementaryGuard) {
            getHomSubTuples().entrySet().forEach(tuple -> {
                 ColorClass cc = tuple.getKey();
                 List<? extends E> comp = tuple.getValue();
-                Domain dom = new Domain(cc,comp.size());
+                Domain dom = Domain.of(cc,comp.size());
                 subtuples.put(cc, build(cc.equals(((ElementaryGuard)filter).getSort()) ? filter.clone(dom): null, dom, Util.singleSortedMap(cc, comp), guard, null));
             });
         } 
@@ -486,7 +582,7 @@ public abstract class AbstractTuple<E extends ClassFunction, F extends Parametri
             getHomSubTuples().entrySet().forEach(tuple -> {
                 ColorClass cc = tuple.getKey();
                 List<? extends E> comp = tuple.getValue();
-                Domain dom = new Domain(cc,comp.size());
+                Domain dom = Domain.of(cc,comp.size());
                 Map<Boolean, SortedSet<Equality>> emap = (Map<Boolean, SortedSet<Equality>>)ParametricExpr.cloneMapExpr(filter.equalityMap().get(cc), dom, Equality.class);
                 Map<Boolean, HashSet<Membership>> mmap = (Map<Boolean, HashSet<Membership>>)ParametricExpr.cloneMapExpr(filter.membershipMap().get(cc), dom, Membership.class);
                 Guard nf = And.factory(cc, emap, mmap);
@@ -52,7 +52,7 @@ public abstract class AbstractTupleProduct<F extends ClassFunction, E extends SN
                  throw new IllegalDomain("tuple product: many-coloured tuples are present:\n"+tuples);
         });
         
-        return new Domain(d);
+        return Domain.of(d);
     }
     
     @Override
@@ -87,7 +87,7 @@ public abstract class AbstractTupleProduct<F extends ClassFunction, E extends SN
             Domain old_cd = tuple.getCodomain();
             Sort cc = old_cd.support().iterator().next(); //the sub-tuple is mono-coloured
             int m = newcd.mult(cc); // m is 0 if cc is not present in newcd
-            cloned_tuples.add(tuple.clone(newdom,  m != 0 ? old_cd : new Domain(newcd.sort(cc.name()), m)).cast() );
+            cloned_tuples.add(tuple.clone(newdom,  m != 0 ? old_cd : Domain.of(newcd.sort(cc.name()), m)).cast() );
         });
         
         return buildOp(cloned_tuples);
@@ -151,10 +151,15 @@ public abstract class AbstractTupleProduct<F extends ClassFunction, E extends SN
     
     @Override
     public final String toString () {
-        String res = "<";
-        res = this.tuples.stream().map(x -> x.toString() + ';').reduce(res, String::concat);
-        
-        return res.substring(0,res.length()-1)+'>';
+        return Printer.toString(this);
+    }
+    
+    @Override
+    public final void print(Printer p) {
+        p.append('<');
+        for (int i = 0; i < this.tuples.size(); i++) 
+            (i > 0 ? p.append(';') : p).print(this.tuples.get(i));
+        p.append('>');
     }
 
     @Override
@@ -5,6 +5,7 @@ import wncalculus.classfunction.All;
 import wncalculus.classfunction.SetFunction;
 import wncalculus.color.ColorClass;
 import wncalculus.expr.Domain;
+import wncalculus.expr.Interval;
 import wncalculus.expr.Sort;
 import wncalculus.util.ComplexKey;
 
@@ -48,10 +49,12 @@ public final class AllTuple extends ConstantTuple {
      */
     public static AllTuple getInstance(Domain codom, Domain dom) {
         ComplexKey k = new ComplexKey(codom, dom);
-        AllTuple at = AT_VALUES.get(k);
-        if ( at == null) {
-            AT_VALUES.put(k, at = new AllTuple( codom, dom));
-            at.setSimplified(true); //OPTIMIZATION
+        AllTuple at;
+        synchronized (AT_VALUES) {
+            if ( (at = AT_VALUES.get(k)) == null) {
+                AT_VALUES.put(k, at = new AllTuple( codom, dom));
+                at.setSimplified(true); //OPTIMIZATION
+            }
         }
         
         return at;
@@ -103,6 +106,16 @@ public final class AllTuple extends ConstantTuple {
         return card;
     }
     
+    @Override
+    public Interval cardBounds() {
+        long card = Interval.pack(1, 1);
+        for (Map.Entry<? extends Sort, Integer> x : getCodomain().asMap().entrySet()) 
+            for (int i = 0; i < x.getValue() ; i++)
+                card = Interval.prod(card, x.getKey().card().packed());
+        
+        return Interval.of(card);
+    }
+    
 
     @Override
     String symbol() {
@@ -48,10 +48,12 @@ public final class AllTuple1  implements FunctionTuple {
      */
     public static AllTuple1 getInstance(Domain codom, Domain dom) {
         ComplexKey k = new ComplexKey(codom, dom);
-        AllTuple1 at = AT_VALUES.get(k);
-        if ( at == null) {
-            AT_VALUES.put(k, at = new AllTuple1( codom, dom));
-            at.setSimplified(true); //OPTIMIZATION
+        AllTuple1 at;
+        synchronized (AT_VALUES) {
+            if ( (at = AT_VALUES.get(k)) == null) {
+                AT_VALUES.put(k, at = new AllTuple1( codom, dom));
+                at.setSimplified(true); //OPTIMIZATION
+            }
         }
         
         return at;
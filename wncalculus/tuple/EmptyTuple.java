@@ -2,6 +2,7 @@ package wncalculus.tuple;
 
 import java.util.*;
 import wncalculus.expr.Domain;
+import wncalculus.expr.Interval;
 import wncalculus.expr.ParametricExpr;
 import wncalculus.util.ComplexKey;
 
@@ -31,10 +32,12 @@ public final class EmptyTuple extends ConstantTuple {
      */
     public static EmptyTuple getInstance(Domain codom, Domain dom) {
         ComplexKey k = new ComplexKey(codom, dom);
-        EmptyTuple et = ET_VALUES.get(k);
-        if ( et == null) {
-            ET_VALUES.put(k, et = new EmptyTuple( codom, dom));
-            et.setSimplified(true); //OPTIMIZATION
+        EmptyTuple et;
+        synchronized (ET_VALUES) {
+            if ( (et = ET_VALUES.get(k)) == null) {
+                ET_VALUES.put(k, et = new EmptyTuple( codom, dom));
+                et.setSimplified(true); //OPTIMIZATION
+            }
         }
         
         return et;
@@ -73,6 +76,11 @@ public final class EmptyTuple extends ConstantTuple {
     public Integer cardLb() {
         return 0;
     }
+    
+    @Override
+    public Interval cardBounds() {
+        return Interval.of(0,0);
+    }
 
     @Override
     String symbol() {
@@ -104,6 +104,15 @@ public interface FunctionTuple extends SetExpr, SNfunctionTuple<SetFunction>, Tr
         while (merged) ;
     }
      
+    /**
+     * @return the interval including the cardinality of <code>this</code> function-tuple
+     * (a single value, if the cardinality is exactly known); <code>null</code> (default)
+     * if, for any reason, it cannot be computed
+     */
+    default Interval cardBounds() {
+        return null;
+    }
+    
     /**
      * @return the codomain's size (i.e., number of elements) of <code>this</code> function
      */
@@ -147,6 +147,12 @@ public final class GuardedTuple implements FunctionTuple , GuardedExpr<FunctionT
     public String toString () {
         return GuardedExpr.super.toStringGuardedExpr() ;
     }
+
+    
+    @Override
+    public void print(Printer p) {
+        GuardedExpr.super.printGuardedExpr(p);
+    }
         
 
     @Override
@@ -2,12 +2,19 @@ package wncalculus.tuple;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import wncalculus.classfunction.*;
 import wncalculus.color.*;
 import wncalculus.expr.*;
 import wncalculus.guard.*;
 import wncalculus.graph.InequalityGraph;
 import wncalculus.logexpr.LogicalExprs;
+import wncalculus.util.BoundedCache;
+import wncalculus.util.ComplexKey;
 import wncalculus.util.Pair;
 import wncalculus.util.Util;
 
@@ -18,7 +25,64 @@ import wncalculus.util.Util;
  */
 public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implements FunctionTuple, Cloneable {
     
-    private boolean reduce_guard; // signals whether the guard has to "absorbed" into the tuple (default: false)
+    private final boolean reduce_guard; // signals whether the guard has to "absorbed" into the tuple (default: false)
+    private volatile Map<Tuple,Integer> index_separated; // cache
+    private Map<ColorClass, int[][]> projection_form; // cache (meaningful if projection_form_done)
+    private volatile boolean projection_form_done;
+    private Integer tuple_card, card_lb; // cache (meaningful if the corresponding flag is set)
+    private Interval card_bounds; // cache (meaningful if card_bounds_done)
+    // the flags are set after the corresponding values, which are thus safely published to other threads
+    private volatile boolean tuple_card_done, card_lb_done, card_bounds_done;
+    private volatile Tuple transposed; // cache (the transpose is an involution, so the link is set both ways)
+    private static final AtomicReferenceFieldUpdater<Tuple, Tuple> TRANSPOSED = AtomicReferenceFieldUpdater.newUpdater(Tuple.class, Tuple.class, "transposed");
+    // the transposes of tuples, keyed by the tuple and its (co-)domain, so that they are shared by equal (e.g., split) tuples
+    private static final BoundedCache<ComplexKey, Tuple> TRANSPOSES = new BoundedCache<>("tuple transposes", 4096);
+    private volatile int next_stage; // the first stage of specSimplify not yet shown to leave this tuple unchanged
+    private static final AtomicIntegerFieldUpdater<Tuple> NEXT_STAGE = AtomicIntegerFieldUpdater.newUpdater(Tuple.class, "next_stage");
+    
+    /**
+     * the stages of the tuple-specific simplification, in the order they are applied:
+     * each stage either rewrites a tuple, or leaves it unchanged; since tuples are immutable,
+     * a stage leaving a tuple unchanged is no longer applied to it
+     */
+    private enum Stage {
+        GENERIC       ("generic reductions",            Tuple::genericReductions),
+        SIMPLE_SUM    ("inner sums/Or expansion",       Tuple::toEquivSimpleSum),
+        CONST_SIZE    ("constant-size expansion",       t -> t.reduce_guard ? t : t.toConstSizeForm()), // questa semplificazione può essere critica
+        ZERO_CARD     ("zero-card intersections",       t -> t.zeroCardIntersection() ? t.getFalse() : t), // ha senso qui e non prima perchè viene dopo toConstSizeForm ...
+        REDUCE_FILTER ("filter reduction",              t -> t.elemAndFilter() ? t.reduceFilter() : t),
+        UNSAT_BOUND   ("unsatisfiability bound",        t -> t.elemAndFilter() && t.checkUnsatBound() ? t.getFalse() : t),
+        FILTER_INEQS  ("filter inequalities reduction", t -> t.elemAndFilter() ? t.reduceFilterIneqs() : t); // può essere critica come efficienza
+        
+        private final String descr;
+        private final Function<Tuple, FunctionTuple> op;
+        private final AtomicLong calls = new AtomicLong(), rewrites = new AtomicLong(), nanos = new AtomicLong();
+        
+        Stage(String descr, Function<Tuple, FunctionTuple> op) {
+            this.descr = descr;
+            this.op = op;
+        }
+        
+        /**
+         * applies <tt>this</tt> stage to a tuple, possibly recording the metrics
+         */
+        FunctionTuple apply(Tuple t) {
+            if (! stage_profiling)
+                return this.op.apply(t);
+            
+            long start = System.nanoTime();
+            FunctionTuple res = this.op.apply(t);
+            this.nanos.addAndGet(System.nanoTime() - start);
+            this.calls.incrementAndGet();
+            if (res != t)
+                this.rewrites.incrementAndGet();
+            
+            return res;
+        }
+    }
+    
+    private static final Stage[] STAGES = Stage.values();
+    private static volatile boolean stage_profiling; // default is false
     
     /**
      * Base constructor (the only which should be used from outside the library at tuple's parsing time):
@@ -41,6 +105,7 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      */
     public Tuple (Guard f, List<? extends SetFunction> l, Guard g, Domain dom) {
         super (f, l, g, dom, true);
+        this.reduce_guard = false;
     }
     
     //i seguenti costruttori derivati da quello base sono eliminabili (usati solo nel Main !)
@@ -88,7 +153,22 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      * @param domain the tuple's domain (necessary only if guard is <code>null</code>)
      */
     Tuple (Guard f, Domain cd, SortedMap<ColorClass, List<? extends SetFunction>> m, Guard g, Domain d) {
+        this(f, cd, m, g, d, false);
+    }
+    
+    /**
+     * efficiently builds a tuple from a map between colors and corresponding class-function lists,
+     * with a given "reduce guard" mode; the mode cannot be changed after construction
+     * @param filter the tuple's filter (<code>null</code> means TRUE)
+     * @param codomain the tuple's codomain (necessary only if filter is <code>null</code>)
+     * @param m the specified map
+     * @param guard the tuple's guard (<code>null</code> means TRUE)
+     * @param domain the tuple's domain (necessary only if guard is <code>null</code>)
+     * @param reduce_guard the "reduce guard" mode
+     */
+    private Tuple (Guard f, Domain cd, SortedMap<ColorClass, List<? extends SetFunction>> m, Guard g, Domain d, boolean reduce_guard) {
         super(f, cd, m, g, d);
+        this.reduce_guard = reduce_guard;
     }
     
     /**
@@ -112,7 +192,7 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      * @param g the tuple's guard
      */
     Tuple (SetFunction f , Guard g, Domain d)  {
-        this(null, new Domain(f.getSort(),1), Util.singleSortedMap(f.getSort(), Collections.singletonList(f)), g, d );
+        this(null, Domain.of(f.getSort(),1), Util.singleSortedMap(f.getSort(), Collections.singletonList(f)), g, d );
     }
             
     /**
@@ -135,10 +215,7 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      */
     @Override
      public Tuple build (Guard f, Domain cd, SortedMap<ColorClass, List<? extends SetFunction>> m, Guard g, Domain d) {
-        Tuple t  = new Tuple(f, cd, m, g, d);
-        t.reduce_guard = this.reduce_guard; //new!
-        
-        return t;
+        return new Tuple(f, cd, m, g, d, this.reduce_guard);
      }
     /**
      * builds a tuple with the same (co-)domain as <code>this</code> tuple
@@ -149,10 +226,7 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      * @return a tuple with the same (co-)domain as <code>this</code> tuple
      */
     private Tuple build (Guard filter, List<? extends SetFunction> list, Guard guard) {
-        Tuple tuple = new Tuple(filter, getCodomain(), list, guard, getDomain());
-        tuple.reduce_guard = this.reduce_guard; //new!
-        
-        return tuple;
+        return new Tuple(filter, getCodomain(), Util.sortedmapFeatureToList(list, ClassFunction::getSort), guard, getDomain(), this.reduce_guard);
     }
     
     /**
@@ -200,19 +274,46 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
         if (filter() == filter && guard() == guard)
             return this;
         
-        Tuple tuple = new Tuple (filter, getCodomain(), getHomSubTuples(), guard, domain);
-        tuple.reduce_guard = this.reduce_guard; //new!
-        
-        return tuple;
+        return new Tuple (filter, getCodomain(), getHomSubTuples(), guard, domain, this.reduce_guard);
     }
     
         
     /**
-     * set the reduce_guard flag (used to mark a left tuple-operand in composition)
-     * @param flag the flag's value
+     * gives a tuple equal to <code>this</code> with the specified "reduce guard" mode
+     * (used to mark a left tuple-operand in composition); <code>this</code> is never modified,
+     * so tuples may be safely shared
+     * @param flag the mode's value
+     * @return <code>this</code>, if its mode is the specified one; otherwise a copy of <code>this</code>
+     * (with the same "simplified" state) with the specified mode
+     */
+    public Tuple withReduceGuard(boolean flag) {
+        if (this.reduce_guard == flag)
+            return this;
+        
+        Tuple t = new Tuple (filter(), getCodomain(), getHomSubTuples(), guard(), getDomain(), flag);
+        t.setSimplified(simplified());
+        
+        return t;
+    }
+    
+    /**
+     * @return <code>true</code> if and only if the guard of <code>this</code> tuple has to be "absorbed" into the tuple
      */
-    public void setReduceGuard(boolean flag) {
-        this.reduce_guard = flag;
+    public boolean reduceGuardMode() {
+        return this.reduce_guard;
+    }
+    
+    /**
+     * @return an equal tuple in "reduce guard" mode
+     */
+    @Override
+    protected Tuple composableForm() {
+        return withReduceGuard(true);
+    }
+    
+    @Override
+    Map<ColorClass, ? extends List<? extends ClassFunction>> filterBinding() {
+        return getHomSubTuples();
     }
     
     /**
@@ -253,77 +354,146 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      * when iteratively applied, it brings a tuple into a sum
      * of  tuples without inner "sums" and without "OR" predicates
      * (e.eg.,  &lang;X_1+X_2,tS&rang; &rarr; &lang;X_1,tS&rang; + &lang;X_2,tS&rang;)
+     * the expanded tuples are normalized as they are built (@see addNormalized)
      * @return an equivalent sum of tuples; <tt>this</tt> if no inner sums/"OR" filters are present
      * non recursive implementation (one expansion step) not ensuring disjointness */
     public FunctionTuple toEquivSimpleSum() {
-        final Set<FunctionTuple> tuples = new HashSet<>();
+        final Stream<Tuple> tuples; // built lazily
         List<? extends SetFunction> mycomps = getComponents(), head, tail;
-        boolean disjoint = false;
+        boolean disjoint;
         int or_index = Util.indexOf(mycomps, Union.class);
         if (or_index >= 0) {    
             Union un = (Union) mycomps.get(or_index);
             head = mycomps.subList(0, or_index); 
             tail = mycomps.subList(or_index + 1, mycomps.size()); 
-            for (SetFunction t : un.getArgs()) {
+            tuples = un.getArgs().stream().map(t -> {
                 List<SetFunction> new_arg_list = new ArrayList<>();
                 new_arg_list.addAll(head);
                 new_arg_list.add((SetFunction) t);
                 new_arg_list.addAll(tail);
-                tuples.add( build(new_arg_list) );
-            }
+                return build(new_arg_list);
+            });
             disjoint = un.disjoined();
         } else if ( filter() instanceof Or) {
             Or f = (Or) filter();
-            f.getArgs().forEach((fx) -> { tuples.add( build(fx, mycomps, guard()) ); });
+            tuples = f.getArgs().stream().map(fx -> build(fx, mycomps, guard()));
             disjoint = f.disjoined();
-            //System.out.println("tuple expansion -> " + tuples); //debug
         } else if ( guard() instanceof Or) {
             Or f = (Or) guard();
-            f.getArgs().forEach(gx -> { tuples.add( build ( filter(), mycomps, gx)); });
+            tuples = f.getArgs().stream().map(gx -> build ( filter(), mycomps, gx));
             disjoint = f.disjoined();
-        } 
-
-        return tuples.isEmpty() ? this : TupleSum.factory(tuples, disjoint );
-    }    
+        } else
+            return this;
+        
+        Set<FunctionTuple> sum = new HashSet<>();
+        for (Iterator<Tuple> ite = tuples.iterator(); ite.hasNext(); )
+            if (addNormalized(ite.next(), sum, disjoint))
+                break; // the sum is True
+        
+        return sum.isEmpty() ? getFalse() : TupleSum.factory(sum, disjoint );
+    }
+    
+    /*
+    normalizes a term of a sum as soon as it is built, and adds its normal form to the sum unless it is null;
+    a normal form which is a sum not marked as disjoint is replaced by the term itself, if the enclosing sum
+    is disjoint (the operands of the nested sum would be merged into those of the enclosing one);
+    returns true if the normal form is the True constant, i.e., the sum is reduced to it
+    */
+    private static boolean addNormalized(Tuple t, Set<FunctionTuple> sum, boolean disjoint) {
+        FunctionTuple nt = (FunctionTuple) t.normalize();
+        if (nt.isTrue()) {
+            sum.clear();
+            sum.add(nt);
+            return true;
+        }
+        
+        if (! nt.isFalse() ) // null terms are discarded
+            sum.add( disjoint && nt instanceof TupleSum && ! ((TupleSum) nt).disjoined() ? t : nt );
+        
+        return false;
+    }
             
+    /**
+     * applies the stages of the tuple-specific simplification, in the order, starting from the first
+     * one not yet shown to leave <code>this</code> tuple unchanged: generic reductions (of the filter,
+     * guard, and components), expansion of inner sums and Or filters/guards, expansion into
+     * a sum of constant-size tuples, check of zero-card components, reduction of the filter,
+     * of its unsatisfiability bound, and of its inequalities
+     * @return the outcome of the first stage which rewrites <code>this</code> tuple;
+     * <code>this</code> if no stage does
+     */
     @Override
     public FunctionTuple specSimplify( ) {
-    	FunctionTuple res = (FunctionTuple) super.specSimplify();
-    	if (this != res)
-            return res;
-    	
-        /*Guard filter = filter();
-    	if (filter != null)
-            filter.setAsFilter( getHomSubTuples() );*/ // qui o dopo?
-        // no reduction carried out on the filter/guard/components of this tuple
-        if ( ( res = toEquivSimpleSum() )  != this) //the tuple is expanded (because it contains "OR" elements)
-            return res;
-        // the tuple doesn't contain "OR" elements, neither in filters nor in its components
-        // no reduction/replacement carried out on the filter/guard/components of this tuple
-        if ( ! reduce_guard && (res = TupleSum.factory(toConstSizeSum(), true ) ) != this ) { // questa semplificazione può essere critica
-            //System.out.println("--->\n"+res); //debug
-            return res;
+        for (int i = this.next_stage; i < STAGES.length; i++) {
+            FunctionTuple res = STAGES[i].apply(this);
+            if (res != this)
+                return res;
+            
+            NEXT_STAGE.accumulateAndGet(this, i + 1, Math::max); // the mark only moves forward
         }
         
+        return this;
+    }
+    
+    /**
+     * @return the outcome of the generic reductions on the filter, guard and components of <code>this</code> tuple
+     */
+    private FunctionTuple genericReductions() {
+        return (FunctionTuple) super.specSimplify();
+    }
+    
+    /**
+     * @return <code>true</code> if and only if <code>this</code> tuple has a (non-null) filter in elementary and-form
+     */
+    private boolean elemAndFilter() {
+        Guard filter = filter();
+        
+        return filter != null && filter.isElemAndForm();
+    }
+    
+    /**
+     * @return <code>true</code> if and only if some component of <code>this</code> tuple is an
+     * intersection of zero cardinality
+     */
+    private boolean zeroCardIntersection() {
         for (List<? extends SetFunction> args : getHomSubTuples().values())
             if ( args.stream().anyMatch( f -> f instanceof Intersection && f.zeroCard()) ) 
-                return getFalse(); // ha senso qui e non prima perchè viene dopo toConstSizeForm ...
-
-        Guard filter = filter();
-        if ( filter != null && filter.isElemAndForm() ) { 
-            filter.setAsFilter( getHomSubTuples() ); // earlier it was anticipated
-            if ( (res = reduceFilter() ) != this) {
-                //System.out.println("->\n"+res); //debug
-                return res;
-            }
-            //the filter is already reduced
-            if ( checkUnsatBound() ) 
-               return  getFalse(); 
-
-            return reduceFilterIneqs( ); // può essere critica come efficienza
-        }
+                return true;
         
-        return this;
+        return false;
+    }
+    
+    /**
+     * enables/disables the profiling of the stages of the tuple-specific simplification
+     * @param enabled the profiling flag
+     */
+    public static void setStageProfiling(boolean enabled) {
+        stage_profiling = enabled;
+    }
+    
+    /**
+     * @return a textual description of the metrics of the stages of tuple-specific simplification
+     * (recorded while profiling is enabled): for each stage, the number of applications, of rewrites,
+     * and the overall time spent
+     */
+    public static String stageStats() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage s : STAGES) 
+            sb.append(s.descr).append(": ").append(s.calls.get()).append(" calls, ").append(s.rewrites.get())
+              .append(" rewrites, ").append(s.nanos.get() / 1000000).append(" ms\n");
+        
+        return sb.toString();
+    }
+    
+    /**
+     * resets the metrics of the stages of tuple-specific simplification
+     */
+    public static void resetStageStats() {
+        for (Stage s : STAGES) {
+            s.calls.set(0);
+            s.rewrites.set(0);
+            s.nanos.set(0);
+        }
     }
     
            
@@ -407,8 +577,21 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      be careful! the original filter is put in the resulting tuples, the guard is ignored!
      @return an "equivalent" map of indexes to corresponding single-index tuples (factors of an intersection-form);
      0 is mapped to a constant factor, if there is any; an empty map, if the tuple requires some further reduction;
+     the (unmodifiable) map is computed once
      */
     public Map<Tuple,Integer> toIndexSeparatedMap() {
+        Map<Tuple,Integer> res = this.index_separated;
+        if (res == null)
+            this.index_separated = res = Collections.unmodifiableMap(indexSeparatedMap());
+        
+        return res;
+    }
+    
+    /**
+     * computes the "index-separated" map of <code>this</code> tuple
+     * @see #toIndexSeparatedMap() 
+     */
+    private Map<Tuple,Integer> indexSeparatedMap() {
         Tuple[] tuples = constantsSeparatedForm(); // the constants in innner intersections are separated
         Set<? extends Integer> t_idx_set = ClassFunction.indexSet(tuples[0].getComponents()); // tuple'fc or_index set (possibly empty)
         Map<Tuple,Integer> tuple_map = new HashMap<>();
@@ -484,11 +667,13 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      * in which inner intersections are brought into a constant-size form 
      * in the particular cases in which the tuple is already "elementary", or all of its components need further reductions,
      * a singleton list is returned; 
-     * @return an equivalent list of disjoint, elementary tuples; a singleton containing <tt>this</tt> tuple
-     * if no expansion has been performed
+     * expanded tuples are generated lazily and normalized at once, those which are empty are discarded
+     * (@see addNormalized), so neither the product nor the null terms are ever materialized
+     * @return an equivalent set of disjoint terms; a singleton containing <tt>this</tt> tuple
+     * if no expansion has been performed; an empty set if all expanded tuples are empty
      */
-    private Set<Tuple> toConstSizeSum() {
-        HashSet<Tuple> sum = new HashSet<>();
+    private Set<FunctionTuple> toConstSizeSum() {
+        HashSet<FunctionTuple> sum = new HashSet<>();
         List< Set<? extends Pair<? extends SetFunction, ? extends Guard> > > list_of_sets = new ArrayList<>();
         boolean expanded = false;
         Domain dom = getDomain();
@@ -516,25 +701,39 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
         
         if (! expanded) 
             sum.add(this); // no expansion needed
-        else
-            Util.cartesianProd(list_of_sets).forEach(list -> {
-                HashSet<Guard> t_guards  =  new HashSet<>();
-                Guard g = guard();
-                if (g instanceof And)
-                    t_guards.addAll( ((And)g). getArgs() );
-                else if (g != null )
-                    t_guards.add(g);
+        else {
+            HashSet<Guard> my_guards  =  new HashSet<>();
+            Guard g = guard();
+            if (g instanceof And)
+                my_guards.addAll( ((And)g). getArgs() );
+            else if (g != null )
+                my_guards.add(g);
+            for (Iterator<List<Pair<? extends SetFunction, ? extends Guard>>> ite = Util.<Pair<? extends SetFunction, ? extends Guard>>cartesianStream(list_of_sets).iterator(); ite.hasNext(); ) {
+                HashSet<Guard> t_guards  =  new HashSet<>(my_guards);
                 List<SetFunction> t_comps = new ArrayList<>();
-                for (Pair<? extends SetFunction, ? extends Guard> p : list) {
+                for (Pair<? extends SetFunction, ? extends Guard> p : ite.next()) {
                     t_comps.add(p.getKey());
                     if (p.getValue() != null) 
                         t_guards.add(p.getValue());
                 }
-                sum.add( build ( filter(), t_comps, And.buildAndForm(t_guards ) ) );
-        });
+                if (addNormalized(build ( filter(), t_comps, And.buildAndForm(t_guards ) ), sum, true))
+                    break; // the sum is True
+            }
+        }
         
         return sum;
     }
+    
+    /**
+     * @return the (disjoint) sum of constant-size tuples equivalent to <tt>this</tt> tuple
+     * (<tt>this</tt>, if no expansion is needed)
+     * @see #toConstSizeSum() 
+     */
+    private FunctionTuple toConstSizeForm() {
+        Set<FunctionTuple> sum = toConstSizeSum();
+        
+        return sum.isEmpty() ? getFalse() : TupleSum.factory(sum, true );
+    }
                 
      /** 
      * applies to this tuple guard-reduction rules; the guard is expressed through an equalities map
@@ -570,13 +769,9 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
         Tuple tupleres;
         SortedMap<ColorClass, List<? extends SetFunction>> singleSortedMap = Util.singleSortedMap(cc, tuple_args);
         if (size == 0 || tuple_args.size() == size) { //size == 0 is new!
-            tupleres =  new Tuple (null, getCodomain(), singleSortedMap,  null, getDomain());
-            tupleres.setReduceGuard(true);
-            
-            return tupleres;
+            return new Tuple (null, getCodomain(), singleSortedMap,  null, getDomain(), true);
         }
-        tupleres = new Tuple(null, buildCodomain(tuple_args), singleSortedMap, null, getDomain());
-        tupleres.setReduceGuard(true);
+        tupleres = new Tuple(null, buildCodomain(tuple_args), singleSortedMap, null, getDomain(), true);
             
         return new TupleProjection( tupleres, size);
     }
@@ -755,6 +950,91 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
         return (SetFunction) Successor.factory(k,f). normalize();
     }
     
+    /**
+     * @return the "projection form" of <tt>this</tt> tuple, if all its components are either projections
+     * or constants (<tt>All</tt>, <tt>Subcl</tt>), i.e., the map between colors and pairs of arrays holding,
+     * for each component of that color, the projection index (0 for constants) and the successor;
+     * <tt>null</tt> if there is any other kind of component; the map is computed once
+     */
+    private Map<ColorClass, int[][]> projectionForm() {
+        if (! this.projection_form_done) {
+            Map<ColorClass, int[][]> pform = new HashMap<>();
+            for (Map.Entry<ColorClass, List<? extends SetFunction>> e : getHomSubTuples().entrySet()) {
+                List<? extends SetFunction> comps = e.getValue();
+                int[] idx = new int[comps.size()], succ = new int[comps.size()];
+                for (int k = 0; k < idx.length && pform != null; k++) {
+                    SetFunction f = comps.get(k);
+                    if (f instanceof Projection) {
+                        idx[k]  = ((Projection) f).getIndex();
+                        succ[k] = ((Projection) f).getSucc();
+                    }
+                    else if (! (f instanceof All || f instanceof Subcl))
+                        pform = null;
+                }
+                if (pform == null)
+                    break;
+                
+                pform.put(e.getKey(), new int[][] {idx, succ});
+            }
+            this.projection_form = pform;
+            this.projection_form_done = true;
+        }
+        
+        return this.projection_form;
+    }
+    
+    /**
+     * fast path of the composition between tuples without filters, made up of projections
+     * and constants only: the composition is directly solved by remapping indices, without building
+     * any intermediate composition; the constant components of the right tuple must not be
+     * possibly empty, whether they are referred to by the left tuple or not (otherwise the composition might be empty);
+     * the left tuple's repeated indices must refer to projections of the right tuple
+     * (otherwise the outcome is not a tuple)
+     * @param right the right tuple
+     * @return the composition's outcome (in normal form, if the right tuple is);
+     * <tt>null</tt> if either tuple is not in projection form, or the composition cannot be solved this way
+     */
+    private Tuple projectionCompose (final Tuple right) {
+        Map<ColorClass, int[][]> lform = projectionForm();
+        if (lform == null || guard() != null || filter() != null || right.filter() != null || right.projectionForm() == null)
+            return null;
+        
+        for (SetFunction rf : right.getComponents()) {
+            Interval card;
+            if (! (rf instanceof Projection) && ((card = rf.card()) == null || card.lb() < 1))
+                return null; // a possibly empty constant
+        }
+        SortedMap<ColorClass, List<? extends SetFunction>> m = new TreeMap<>();
+        for (Map.Entry<ColorClass, List<? extends SetFunction>> e : getHomSubTuples().entrySet()) {
+            ColorClass cc = e.getKey();
+            List<? extends SetFunction> lcomps = e.getValue(), rcomps = right.getHomSubTuple(cc);
+            int[] idx = lform.get(cc)[0], succ = lform.get(cc)[1], refs = new int[rcomps.size() + 1];
+            SetFunction[] comps = new SetFunction[idx.length];
+            for (int k = 0; k < idx.length; k++) {
+                int i = idx[k];
+                if (i == 0) 
+                    comps[k] = lcomps.get(k);
+                else {
+                    SetFunction rf = rcomps.get(i - 1);
+                    if (rf instanceof Projection) {
+                        Projection rp = (Projection) rf;
+                        comps[k] = Projection.builder(rp.getIndex(), rp.getSucc() + succ[k], cc);
+                    }
+                    else if (++refs[i] > 1 || succ[k] != 0 && ! (rf instanceof All))
+                        return null; // repeated reference to a constant, or successor of a subclass
+                    else 
+                        comps[k] = rf;
+                }
+            }
+            m.put(cc, Arrays.asList(comps));
+        }
+        Tuple res = new Tuple(null, getCodomain(), m, right.guard(), right.getDomain());
+        if (right.simplified())
+            res.setSimplified(true);
+        
+        return res;
+    }
+    
     /** 
      * performs the composition between tuples, assuming that the filter of <tt>this<tt> is trivial 
      * @param right the tuple to tupleCompose with <tt>this<tt>
@@ -772,14 +1052,16 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
         //this tuple's guard is null
         SortedMap<ColorClass, List<? extends SetFunction>> parts = getHomSubTuples();
         if (filter == null) { // base case: there is no inner filter
+             Tuple pc = projectionCompose(right);
+             if (pc != null) // fast path
+                 return pc;
+             
              if (parts.size() < 2) // single-color left tuple 
                  return onesortedTupleCompose(right); //may return null 
 
              List<FunctionTuple> compositions  = new ArrayList<>();
-             parts.entrySet().forEach( h_part -> {
-                 ColorClass cc = h_part.getKey();
-                 List<? extends SetFunction> list = h_part.getValue();
-                 compositions.add(new TupleComposition( new Tuple (null, new Domain(cc , list.size()), Util.singleSortedMap(cc,list), null, getDomain()),  right));
+             oneSortedParts().values().forEach( h_part -> {
+                 compositions.add(new TupleComposition( h_part.cast(),  right));
             });
              
             return TupleProduct.factory(compositions);
@@ -796,10 +1078,8 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
         });
         // residual sub-tuples with no associated filter ....
         parts.keySet().forEach(col -> {
-            if (hom_filters.get(col) == null) {
-                List<? extends SetFunction> st = parts.get(col); // the sub-tuple of cc_low_case cc_name
-                compositions.add(new TupleComposition(new Tuple (null, new Domain(col,st.size()),  Util.singleSortedMap(col, st) , null, getDomain()), right_nof));
-            }
+            if (hom_filters.get(col) == null) 
+                compositions.add(new TupleComposition(oneSortedParts().get(col).cast(), right_nof)); // the sub-tuple of color col
         });
         //System.out.println("basecompose ->\n"+res); //debug
         return TupleProduct.factory(compositions);
@@ -838,7 +1118,7 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
                         List<? extends SetFunction> comps = t.getComponents();
                         if (i != 1)
                             comps = ClassFunction.setDefaultIndex( comps );
-                        Tuple l = new Tuple(null, getCodomain(), Util.singleSortedMap(cc, comps) , null, new Domain(cc)), //a copy of this tuple with index 1
+                        Tuple l = new Tuple(null, getCodomain(), Util.singleSortedMap(cc, comps) , null, Domain.of(cc)), //a copy of this tuple with index 1
                               r = new Tuple(f_i, right.guard(), right.getDomain());
                         r.setSimplified(true); //optimizations
                         ft = new TupleComposition(l, r);
@@ -991,7 +1271,7 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
         List<Sort> codom_list = new ArrayList<>();
         l.forEach((f) -> { codom_list.add(f.getSort()); });
         
-        return new Domain(codom_list);
+        return Domain.of(codom_list);
     }
     
     
@@ -1040,13 +1320,44 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
         return null;
     }
     
+    /**
+     * @return the cache of tuple transposes, that can be used to set its capacity (zero disables it),
+     * to clear it, and to get its metrics; the cache never needs invalidation, since terms are immutable
+     */
+    public static BoundedCache<ComplexKey, Tuple> transposeCache() {
+        return TRANSPOSES;
+    }
+    
      /**
-     * implements the transpose algorithm for a Tuple, assumed to be in a normal-and-form,
-     * and not containing the "empty" class-function
-     * @return the transpose of <tt>this</tt> tuple
+     * computes the transpose of a Tuple, assumed to be in a normal-and-form,
+     * and not containing the "empty" class-function; the transpose is computed once,
+     * then linked to <tt>this</tt> tuple (and vice-versa), so that a double transpose
+     * costs a lookup; transposes are also shared by equal tuples; links are set atomically,
+     * only if missing, since transposes may be shared among threads
+     * @return the transpose of <tt>this</tt> tuple; <tt>null</tt> if the tuple is not in a normal-and-form
      * @see isNormalAndForm
      */
     public Tuple transpose () {
+        Tuple tr = this.transposed;
+        if (tr == null) {
+            tr = TRANSPOSES.get(new ComplexKey(this, getDomain(), getCodomain()), k -> buildTranspose());
+            if (tr != null) {
+                if (TRANSPOSED.compareAndSet(tr, null, this))
+                    TRANSPOSES.put(new ComplexKey(tr, tr.getDomain(), tr.getCodomain()), this);
+                if (! TRANSPOSED.compareAndSet(this, null, tr))
+                    tr = this.transposed; // an equal transpose has been linked meanwhile
+            }
+        }
+        
+        return tr;
+    }
+    
+     /**
+     * implements the transpose algorithm for a Tuple, assumed to be in a normal-and-form,
+     * and not containing the "empty" class-function
+     * @return the transpose of <tt>this</tt> tuple; <tt>null</tt> if the tuple is not in a normal-and-form
+     */
+    private Tuple buildTranspose () {
         if ( ! LogicalExprs.isNormalAndForm( getComponents() ) ) {
             System.err.println(this+".transpose() -> null"); //debug
             return null;
@@ -1095,10 +1406,55 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      * 
      * @return the tuple'fc cardLb lower-bound, meant as product of tuple's components
      * cardinalities; <code>null</code> if, for any reason, the cardLb cannot be computed
-     * REMARK the possible filter is ignored
+     * REMARK the possible filter is ignored; the value is computed once
      * @throws ArithmeticException in the event of either overflow of an empty tuple
      */
     public Integer tupleCard () {
+        if (! this.tuple_card_done) {
+            this.tuple_card = computeTupleCard();
+            this.tuple_card_done = true;
+        }
+        
+        return this.tuple_card;
+    }
+    
+    /**
+     * @return the interval including the cardinality of <code>this</code> tuple, meant as the product of tuple's components
+     * cardinality intervals (a single value, if the cardinality is exactly known); <code>null</code> if <code>this</code>
+     * tuple has a filter (which might reduce its cardinality), or if, for any reason, the interval cannot be computed;
+     * the outcome is computed once
+     * @throws ArithmeticException in the event of overflow
+     */
+    @Override
+    public Interval cardBounds () {
+        if (! this.card_bounds_done) {
+            this.card_bounds = filter() == null ? computeCardBounds() : null;
+            this.card_bounds_done = true;
+        }
+        
+        return this.card_bounds;
+    }
+    
+    /**
+     * @see #cardBounds() 
+     */
+    private Interval computeCardBounds () {
+        long card = Interval.pack(1, 1);
+        for (SetFunction f : getComponents())  {
+            Interval fc = f.card();
+            if (fc == null )
+                return null;
+
+            card = Interval.prod(card, fc.packed());
+        }
+        
+        return Interval.of(card);
+    }
+    
+    /**
+     * @see #tupleCard() 
+     */
+    private Integer computeTupleCard () {
         Integer card = 1;
         for (List<? extends SetFunction> l : getHomSubTuples().values() ) 
             for (SetFunction f : l)  {
@@ -1122,6 +1478,18 @@ public final class Tuple extends AbstractTuple<SetFunction,FunctionTuple> implem
      */
     @Override
     public Integer cardLb () {
+        if (! this.card_lb_done) {
+            this.card_lb = computeCardLb();
+            this.card_lb_done = true;
+        }
+        
+        return this.card_lb;
+    }
+    
+    /**
+     * @see #cardLb() 
+     */
+    private Integer computeCardLb () {
         Guard myf = filter();
         if (myf == null)
             return tupleCard();
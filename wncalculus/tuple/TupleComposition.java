@@ -4,6 +4,8 @@ import java.util.Collections;
 import java.util.Set;
 import wncalculus.expr.*;
 import wncalculus.logexpr.LogComposition;
+import wncalculus.util.BoundedCache;
+import wncalculus.util.ComplexKey;
 
 /**
  * this class defines the composition between WN (set) function-tuples
@@ -11,11 +13,21 @@ import wncalculus.logexpr.LogComposition;
  */
 public final class TupleComposition implements FunctionTuple, LogComposition<FunctionTuple> {
     
-    private FunctionTuple left , right;
+    private final FunctionTuple left , right;
     private boolean simplified;
+    // the normal forms of solved compositions, keyed by the operands and their (co-)domains
+    private static final BoundedCache<ComplexKey, FunctionTuple> CACHE = new BoundedCache<>("tuple compositions", 4096);
+    
+    /**
+     * @return the cache of composition outcomes, that can be used to set its capacity (zero disables it),
+     * to clear it, and to get its metrics; the cache never needs invalidation, since terms are immutable
+     */
+    public static BoundedCache<ComplexKey, FunctionTuple> cache() {
+        return CACHE;
+    }
     
     /** creates a new composition between function-tuples after having possibly checked that the (co)domains are consistent
-     * if the left operand is a Tuple its "reduce guard" flag is set up
+     * if the left operand is a Tuple it is replaced by an equal tuple in "reduce guard" mode
      * @param left the left operand
      * @param right the right operand
      * @param check domain-check flag
@@ -24,7 +36,8 @@ public final class TupleComposition implements FunctionTuple, LogComposition<Fun
         if (/*check && */!left.getDomain().equals(right.getCodomain())) 
             throw new IllegalDomain("the domain of the left function and the codomain of the right one do not correspond!");
         
-        setArgs(left,right);
+        this.left  = left instanceof Tuple ? ((Tuple)left).withReduceGuard(true) : left; //new
+        this.right = right;
     }
     
     /** creates a new composition between function-tuples assuming that the (co)domains are consistent
@@ -42,23 +55,28 @@ public final class TupleComposition implements FunctionTuple, LogComposition<Fun
         return new TupleComposition( left, right);
     }
     
-    private void setArgs(FunctionTuple left, FunctionTuple right) {
-        this.left   = left;
-        if (left instanceof Tuple) //new
-            ((Tuple)this.left).setReduceGuard(true);
-        this.right  = right;
-    }
-    
+    /**
+     * if the left operand is a filter-less tuple and the right operand is a tuple,
+     * solves the composition; the outcome's normal form is cached
+     * @return the composition's outcome, or <code>this</code>
+     */
     @Override
     public FunctionTuple specSimplify() {
         //System.err.println("***\n"+this);
-        FunctionTuple res = this;
-        Tuple tleft;
-        if (this.left instanceof Tuple && (tleft = (Tuple) this.left).filter() == null  && this.right.isTuple() &&
-                ( res = tleft.tupleCompose(this.right.asTuple().cast()) ) instanceof Tuple) 
-            ((Tuple)res).setReduceGuard(false); // the composition has been solved: default condition (not needed?)
-        //System.err.println("\n-->\n"+res);
-        return res;
+        if (this.left instanceof Tuple && ((Tuple) this.left).filter() == null  && this.right.isTuple()) {
+            Tuple tleft = (Tuple) this.left, tright = this.right.asTuple().cast();
+            ComplexKey k = new ComplexKey(tleft, tright, tleft.getDomain(), tright.getDomain(), tright.getCodomain()); // tuple equality disregards domains
+            
+            return CACHE.get(k, x -> {
+                FunctionTuple res = tleft.tupleCompose(tright);
+                if (res instanceof Tuple) 
+                    res = ((Tuple)res).withReduceGuard(false); // the composition has been solved: default condition (not needed?)
+                
+                return res instanceof TupleComposition ? res : (FunctionTuple) res.normalize();
+            });
+        }
+        
+        return this;
     }
     
     @Override
@@ -101,6 +119,12 @@ public final class TupleComposition implements FunctionTuple, LogComposition<Fun
         return LogComposition.super.toStringOp();
     }
 
+    
+    @Override
+    public final void print(Printer p) {
+        LogComposition.super.printOp(p);
+    }
+
     @Override
     public boolean simplified() {
         return this.simplified;
@@ -176,6 +176,12 @@ public final class TupleDiff implements FunctionTuple, TwoArgs<FunctionTuple,Fun
         return TwoArgs.super.toStringOp();
     }
 
+    
+    @Override
+    public final void print(Printer p) {
+        TwoArgs.super.printOp(p);
+    }
+
     @Override
     public Class<? extends FunctionTuple> argsType() {
         return FunctionTuple.class;
@@ -65,5 +65,11 @@ public abstract class TupleNaryOp  implements FunctionTuple , N_aryOp<FunctionTu
     public final String toString() {
         return N_aryOp.super.toStringOp();
     }
+
+    
+    @Override
+    public final void print(Printer p) {
+        N_aryOp.super.printOp(p);
+    }
     
 }
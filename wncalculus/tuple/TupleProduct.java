@@ -11,6 +11,9 @@ import wncalculus.classfunction.SetFunction;
  */
 public final class TupleProduct extends AbstractTupleProduct<SetFunction,FunctionTuple> implements FunctionTuple   {
     
+    private Integer card_lb; // cache
+    private Interval card_bounds; // cache
+    
     /*
     base constructor
     */
@@ -69,6 +72,50 @@ public final class TupleProduct extends AbstractTupleProduct<SetFunction,Functio
     public boolean differentFromZero() {
         return getArgs().stream().allMatch(t -> t.differentFromZero());
     }
+    
+    /**
+     * @return the product of the operands' cardinality lower-bounds (computed once);
+     * <code>null</code> if any of them cannot be computed
+     * @throws ArithmeticException in the event of overflow
+     */
+    @Override
+    public Integer cardLb() {
+        if (this.card_lb == null) {
+            int card = 1;
+            for (FunctionTuple x : getArgs() ) {
+                Integer n = x.cardLb();
+                if (n == null)
+                    return null;
+
+                card = Math.multiplyExact(card, n);
+            }
+            this.card_lb = card;
+        }
+        
+        return this.card_lb;
+    }
+    
+    /**
+     * @return the bound-wise product of the operands' cardinality intervals (computed once);
+     * <code>null</code> if any of them cannot be computed
+     * @throws ArithmeticException in the event of overflow
+     */
+    @Override
+    public Interval cardBounds() {
+        if (this.card_bounds == null) {
+            long card = Interval.pack(1, 1);
+            for (FunctionTuple x : getArgs() ) {
+                Interval n = x.cardBounds();
+                if (n == null)
+                    return null;
+
+                card = Interval.prod(card, n.packed());
+            }
+            this.card_bounds = Interval.of(card);
+        }
+        
+        return this.card_bounds;
+    }
 
     //@Override
     /** the simplification algorithm treats two cases; a juxtaposition formed only by 
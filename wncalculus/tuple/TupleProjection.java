@@ -69,7 +69,7 @@ public final class TupleProjection implements FunctionTuple, UnaryOp<FunctionTup
     @Override
     public Domain getCodomain() {
         if (this.codomain == null)
-            this.codomain = new Domain(this.cc, this.k);
+            this.codomain = Domain.of(this.cc, this.k);
         
         return this.codomain;
     }
@@ -257,7 +257,7 @@ public final class TupleProjection implements FunctionTuple, UnaryOp<FunctionTup
      */
     @Override
     public TupleProjection  clone (final Domain newdom, final Domain newcd) {
-        return buildOp( getArg().clone(newdom, new Domain(newcd.support().iterator().next(), this.ftuple.size())). cast());
+        return buildOp( getArg().clone(newdom, Domain.of(newcd.support().iterator().next(), this.ftuple.size())). cast());
     }
 
  
@@ -292,6 +292,12 @@ public final class TupleProjection implements FunctionTuple, UnaryOp<FunctionTup
         return UnaryOp.super.toStringOp();
     }
 
+    
+    @Override
+    public void print(Printer p) {
+        UnaryOp.super.printOp(p);
+    }
+
     @Override
     public boolean isDistributive (Class<? extends MultiArgs> optk) {
         return  optk.equals(TupleSum.class);
@@ -2,6 +2,7 @@ package wncalculus.tuple;
 
 import java.util.*;
 import wncalculus.expr.IllegalDomain;
+import wncalculus.expr.Interval;
 import wncalculus.logexpr.OrOp;
 import wncalculus.util.Util;
 
@@ -13,6 +14,8 @@ import wncalculus.util.Util;
 public final class TupleSum extends TupleNaryOp implements OrOp<FunctionTuple> {
     
     private boolean disjoined; // default is false
+    private Integer card_lb; // cache
+    private Interval card_bounds; // cache
     
     private TupleSum (Set<? extends FunctionTuple> tuples, boolean check, boolean disjoined) {
         super(tuples, check);
@@ -144,6 +147,10 @@ public final class TupleSum extends TupleNaryOp implements OrOp<FunctionTuple> {
         System.out.println("cardinality of sum's elements (END)");
     }
     
+    /**
+     * @return the sum of the operands' cardinality lower-bounds (computed once);
+     * <code>null</code> if <code>this</code> sum is not disjoined, or any of them cannot be computed
+     */
     @Override
     public final Integer cardLb() {
         if (! this.disjoined ) {
@@ -151,16 +158,40 @@ public final class TupleSum extends TupleNaryOp implements OrOp<FunctionTuple> {
             return null;
         }
         
-        int card = 0;
-        for (FunctionTuple x : getArgs() ) {
-            Integer n = x.cardLb();
-            if (n == null)
-                return null;
-            
-            card += n;
+        if (this.card_lb == null) {
+            int card = 0;
+            for (FunctionTuple x : getArgs() ) {
+                Integer n = x.cardLb();
+                if (n == null)
+                    return null;
+
+                card += n;
+            }
+            this.card_lb = card;
+        }
+        
+        return this.card_lb;
+    }
+    
+    /**
+     * @return the bound-wise sum of the operands' cardinality intervals (computed once);
+     * <code>null</code> if <code>this</code> sum is not disjoined, or any of them cannot be computed
+     */
+    @Override
+    public final Interval cardBounds() {
+        if (this.disjoined && this.card_bounds == null) {
+            long card = Interval.pack(0, 0);
+            for (FunctionTuple x : getArgs() ) {
+                Interval n = x.cardBounds();
+                if (n == null)
+                    return null;
+
+                card = Interval.sum(card, n.packed());
+            }
+            this.card_bounds = Interval.of(card);
         }
         
-        return card;
+        return this.card_bounds;
     }
     
     @Override
@@ -106,6 +106,12 @@ public final class TupleTranspose implements FunctionTuple, UnaryOp<FunctionTupl
         return toStringPost();
     }
 
+    
+    @Override
+    public final void print(Printer p) {
+        printPost(p);
+    }
+
     @Override
     public boolean isInvolution() {
         return true;
@@ -0,0 +1,132 @@
+package wncalculus.util;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * this class represents a bounded (least recently used) cache, with hit-rate metrics;
+ * it is meant to store the outcomes of pure computations on immutable terms, so cached entries
+ * are never invalidated by term changes: entries are only evicted when the capacity is exceeded,
+ * or explicitly removed (all together) by <tt>clear</tt>; access is synchronized
+ * @author Lorenzo Capra
+ * @param <K> the type of keys
+ * @param <V> the type of cached values
+ */
+public final class BoundedCache<K, V> {
+
+    private final String name;
+    private int capacity;
+    private long hits, misses, evictions;
+    private final LinkedHashMap<K, V> map;
+
+    /**
+     * builds an empty cache
+     * @param name the cache's name (used in statistics)
+     * @param capacity the max number of entries (zero disables caching)
+     */
+    public BoundedCache(String name, int capacity) {
+        this.name = name;
+        this.capacity = Math.max(0, capacity);
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > BoundedCache.this.capacity) {
+                    BoundedCache.this.evictions++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * gets the value associated with a key, computing (and caching) it if absent;
+     * the computation is done outside of the lock, so it may be recursive
+     * @param key a key
+     * @param f the function computing the value from the key
+     * @return the (possibly cached) value associated with the key
+     */
+    public V get(K key, Function<? super K, ? extends V> f) {
+        synchronized (this) {
+            if (this.capacity == 0)
+                this.misses++;
+            else {
+                V v = this.map.get(key);
+                if (v != null) {
+                    this.hits++;
+                    return v;
+                }
+
+                this.misses++;
+            }
+        }
+        V v = f.apply(key);
+        synchronized (this) {
+            if (this.capacity > 0 && v != null)
+                this.map.put(key, v);
+        }
+
+        return v;
+    }
+
+    /**
+     * associates a value with a key, e.g., when the value of a related key is known as a by-product
+     * @param key a key
+     * @param v a (non-null) value
+     */
+    public synchronized void put(K key, V v) {
+        if (this.capacity > 0 && v != null)
+            this.map.put(key, v);
+    }
+
+    /**
+     * sets the capacity of this cache, possibly evicting the least recently used entries
+     * @param capacity the max number of entries (zero disables caching)
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        for (Iterator<K> it = this.map.keySet().iterator(); this.map.size() > this.capacity; ) {
+            it.next();
+            it.remove();
+            this.evictions++;
+        }
+    }
+
+    /**
+     * @return the capacity of this cache
+     */
+    public synchronized int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public synchronized int size() {
+        return this.map.size();
+    }
+
+    /**
+     * removes all entries and resets the metrics
+     */
+    public synchronized void clear() {
+        this.map.clear();
+        this.hits = this.misses = this.evictions = 0;
+    }
+
+    /**
+     * @return the ratio between hits and accesses (zero, if there were no accesses)
+     */
+    public synchronized double hitRate() {
+        long accesses = this.hits + this.misses;
+
+        return accesses == 0 ? 0 : (double) this.hits / accesses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: %d/%d entries, %d hits, %d misses (hit-rate %.2f), %d evictions",
+                this.name, this.map.size(), this.capacity, this.hits, this.misses, hitRate(), this.evictions);
+    }
+}
@@ -0,0 +1,226 @@
+package wncalculus.util;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * this class represents the (lazy) Cartesian product among a list of collections of terms;
+ * the product's elements are enumerated as index vectors, in lexicographic order, without
+ * building any intermediate collection: each vector corresponds to a "rank" in the mixed-radix
+ * numbering given by the collections' sizes, so that the enumeration can be split into rank ranges
+ * (e.g., to be processed in parallel); prefixes of index vectors may be pruned, by means of
+ * a predicate on the corresponding partial lists of terms
+ * @author Lorenzo Capra
+ * @param <E> the terms' type
+ */
+public final class CartesianProduct<E> {
+
+    private static final int MIN_SPLIT = 1 << 10; // the min size of a rank range that can be split
+
+    private final List<List<? extends E>> lists;
+    private final long[] strides; // strides[k]: the number of vectors sharing a prefix of length k+1
+    private final long size;
+    private final Predicate<? super List<E>> viable; // null means no pruning
+
+    private CartesianProduct(List<List<? extends E>> lists, long[] strides, long size, Predicate<? super List<E>> viable) {
+        this.lists   = lists;
+        this.strides = strides;
+        this.size    = size;
+        this.viable  = viable;
+    }
+
+    /**
+     * builds the Cartesian product among a list of collections
+     * @param <E> the terms' type
+     * @param listofsets a list of collections (their iteration order is the order of the product's vectors)
+     * @return the corresponding (lazy) Cartesian product; it is empty if any collection is,
+     * it holds just an empty vector if the list is empty
+     * @throws ArithmeticException if the size of the product exceeds <tt>Long.MAX_VALUE</tt>
+     */
+    public static <E> CartesianProduct<E> of(List<? extends Collection<? extends E>> listofsets) {
+        final int n = listofsets.size();
+        List<List<? extends E>> lists = new ArrayList<>(n);
+        for (Collection<? extends E> c : listofsets)
+            lists.add(c instanceof List<?> && c instanceof RandomAccess ? (List<? extends E>) c : new ArrayList<>(c));
+        long[] strides = new long[n];
+        long size = 1;
+        for (int k = n - 1; k >= 0; k--) {
+            strides[k] = size;
+            size = Math.multiplyExact(size, lists.get(k).size());
+        }
+
+        return new CartesianProduct<>(lists, strides, size, null);
+    }
+
+    /**
+     * builds a product with pruning; a spliterator (see <tt>indexSpliterator</tt>) evaluates the predicate
+     * sequentially, on the prefixes of each vector in increasing length, starting from the shortest one
+     * not shared with the previous vector (the prefixes it shares with the previous vector are known to be
+     * viable, so they are not tested again); a spliterator obtained by splitting tests all the prefixes
+     * of its first vector; hence, as long as the product is traversed by a single (not split) spliterator,
+     * the predicate may keep per-length state, e.g., an incremental computation on the prefix of length <tt>k</tt>
+     * which builds on the one done on the prefix of length <tt>k-1</tt>
+     * @param viable a predicate on (non-empty) prefixes of the product's lists: a prefix is extended
+     * only if it holds; it is evaluated on list views that must not be stored
+     * @return a product with the same operands as <tt>this</tt>, whose lists have viable prefixes only
+     */
+    public CartesianProduct<E> withPruning(Predicate<? super List<E>> viable) {
+        return new CartesianProduct<>(this.lists, this.strides, this.size, viable);
+    }
+
+    /**
+     * @return the number of index vectors, without considering pruning
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of operands
+     */
+    public int arity() {
+        return this.lists.size();
+    }
+
+    /**
+     * @param k an operand's position
+     * @param i a position in the operand
+     * @return the <tt>i</tt>-th term of the <tt>k</tt>-th operand
+     */
+    public E get(int k, int i) {
+        return this.lists.get(k).get(i);
+    }
+
+    /**
+     * @return a (splittable) spliterator over the index vectors of <tt>this</tt> product; the array
+     * passed to the action is reused, so it must not be stored or modified
+     */
+    public Spliterator<int[]> indexSpliterator() {
+        return new IndexSpliterator(0, this.size);
+    }
+
+    /**
+     * @param parallel parallel-stream flag
+     * @return a stream of the lists of terms forming <tt>this</tt> product (each list is a fresh fixed-size list)
+     */
+    @SuppressWarnings("unchecked") // the terms of the k-th list are taken from the k-th operand
+    public Stream<List<E>> stream(boolean parallel) {
+        final int n = this.lists.size();
+
+        return StreamSupport.stream(indexSpliterator(), parallel).map(idx -> {
+            Object[] terms = new Object[n];
+            for (int k = 0; k < n; k++)
+                terms[k] = this.lists.get(k).get(idx[k]);
+
+            return (List<E>) Arrays.asList(terms);
+        });
+    }
+
+    /**
+     * @return a (sequential) stream of the lists of terms forming <tt>this</tt> product
+     */
+    public Stream<List<E>> stream() {
+        return stream(false);
+    }
+
+    /**
+     * enumerates a range of ranks of the product, skipping the vectors with non-viable prefixes
+     */
+    private final class IndexSpliterator implements Spliterator<int[]> {
+
+        private long cur;
+        private final long hi;
+        private final int[] idx;  // the current vector
+        private int valid; // the length of the longest prefix of the current vector known to be viable
+        private final List<E> prefix; // a view of a prefix of the current vector
+        private int plen;  // the length of the prefix view
+
+        IndexSpliterator(long lo, long hi) {
+            this.cur = lo;
+            this.hi  = hi;
+            this.idx = new int[lists.size()];
+            this.valid = -1; // the current vector hasn't been decoded yet
+            this.prefix = new AbstractList<E>() {
+                @Override
+                public E get(int k) {
+                    if (k >= plen)
+                        throw new IndexOutOfBoundsException();
+
+                    return lists.get(k).get(idx[k]);
+                }
+
+                @Override
+                public int size() {
+                    return plen;
+                }
+            };
+        }
+
+        /**
+         * decodes the current rank into the index vector, updating the length of the known viable prefix
+         */
+        private void decode() {
+            long r = this.cur;
+            int first = this.idx.length; // the first changed position
+            for (int k = 0; k < this.idx.length; k++) {
+                int i = (int) (r / strides[k]);
+                r %= strides[k];
+                if (i != this.idx[k] && first == this.idx.length)
+                    first = k;
+                this.idx[k] = i;
+            }
+            this.valid = this.valid < 0 ? 0 : Math.min(this.valid, first);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            while (this.cur < this.hi) {
+                decode();
+                int bad = -1; // the length - 1 of the shortest non-viable prefix
+                if (viable != null)
+                    for (int k = this.valid; k < this.idx.length && bad < 0; k++) {
+                        this.plen = k + 1;
+                        if (viable.test(this.prefix))
+                            this.valid = k + 1;
+                        else
+                            bad = k;
+                    }
+                if (bad < 0) {
+                    this.cur++;
+                    action.accept(this.idx);
+
+                    return true;
+                }
+                // the vectors sharing the non-viable prefix are skipped
+                this.cur = (this.cur / strides[bad] + 1) * strides[bad];
+            }
+
+            return false;
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            long lo = this.cur, mid = lo + (this.hi - lo) / 2;
+            if (this.hi - lo < MIN_SPLIT)
+                return null;
+
+            this.cur = mid;
+            this.valid = -1;
+
+            return new IndexSpliterator(lo, mid);
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.hi - this.cur;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE | (viable == null ? SIZED | SUBSIZED : 0);
+        }
+    }
+}
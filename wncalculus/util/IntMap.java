@@ -0,0 +1,482 @@
+package wncalculus.util;
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * this class represents maps from (non-null) objects to primitive integers, implemented
+ * by open addressing (linear probing) on parallel arrays, so that neither entries nor boxed values
+ * are allocated; it is meant to store the multiplicities of bags: an absent key has value zero,
+ * and the in-place operations (<tt>addTo</tt>, <tt>addAll</tt>, <tt>scale</tt>) drop the keys
+ * whose value becomes zero; a map may be frozen, after which it is read-only;
+ * for compatibility, <tt>this</tt> class is also a <tt>Map</tt>, whose (boxing) entry-set
+ * doesn't support removal by iterators
+ * @author Lorenzo Capra
+ * @param <K> the type of keys
+ */
+public final class IntMap<K> extends AbstractMap<K, Integer> {
+
+    private static final int MIN_CAPACITY = 8;
+    private static final IntMap<?> EMPTY = new IntMap<>(0).freeze();
+
+    private Object[] keys; // a power-of-two sized table (null means a free slot)
+    private int[] vals;
+    private int size;
+    private boolean frozen;
+    private int hash; // cache (only used when frozen, 0 means not computed)
+
+    /**
+     * builds an empty map
+     */
+    public IntMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * builds an empty map
+     * @param expected the expected number of keys
+     */
+    public IntMap(int expected) {
+        int cap = MIN_CAPACITY;
+        while (cap * 2 < expected * 3) // the load factor doesn't exceed 2/3
+            cap <<= 1;
+        this.keys = new Object[cap];
+        this.vals = new int[cap];
+    }
+
+    /**
+     * @param <K> the type of keys
+     * @param m a map whose values are non-null
+     * @return a (modifiable) copy of the specified map
+     */
+    public static <K> IntMap<K> copyOf(Map<? extends K, Integer> m) {
+        IntMap<K> copy;
+        if (m instanceof IntMap<?>) {
+            IntMap<? extends K> im = (IntMap<? extends K>) m;
+            copy = new IntMap<>();
+            copy.keys = im.keys.clone();
+            copy.vals = im.vals.clone();
+            copy.size = im.size;
+        }
+        else {
+            copy = new IntMap<>(m.size());
+            for (Map.Entry<? extends K, Integer> e : m.entrySet())
+                copy.putInt(e.getKey(), e.getValue());
+        }
+
+        return copy;
+    }
+
+    /**
+     * @param <K> the type of keys
+     * @return the (frozen) empty map
+     */
+    @SuppressWarnings("unchecked") // the empty map holds no keys
+    public static <K> IntMap<K> empty() {
+        return (IntMap<K>) EMPTY;
+    }
+
+    /**
+     * @param <K> the type of keys
+     * @param k a key
+     * @param n a value
+     * @return a (modifiable) map holding just the specified pair
+     */
+    public static <K> IntMap<K> singleton(K k, int n) {
+        IntMap<K> m = new IntMap<>(1);
+        m.putInt(k, n);
+
+        return m;
+    }
+
+    /**
+     * spreads the hash-code of a key
+     */
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the slot holding the specified (non-null) key, or the free slot where it should be put
+     */
+    private int slot(Object k) {
+        final int mask = this.keys.length - 1;
+        int i = mix(k.hashCode()) & mask;
+        for (Object x; (x = this.keys[i]) != null && ! x.equals(k); )
+            i = (i + 1) & mask;
+
+        return i;
+    }
+
+    private void checkMutable() {
+        if (this.frozen)
+            throw new UnsupportedOperationException("frozen map");
+    }
+
+    /**
+     * inserts a new key in a given free slot, possibly growing the table
+     */
+    private void insert(int i, K k, int n) {
+        this.keys[i] = k;
+        this.vals[i] = n;
+        if (++this.size * 3 > this.keys.length * 2)
+            rehash(this.keys.length << 1);
+    }
+
+    private void rehash(int cap) {
+        Object[] oldk = this.keys;
+        int[] oldv = this.vals;
+        this.keys = new Object[cap];
+        this.vals = new int[cap];
+        for (int j = 0; j < oldk.length; j++)
+            if (oldk[j] != null) {
+                int i = slot(oldk[j]);
+                this.keys[i] = oldk[j];
+                this.vals[i] = oldv[j];
+            }
+    }
+
+    /**
+     * removes the key in a given slot, shifting back the following keys of the same cluster
+     */
+    private void removeAt(int i) {
+        final int mask = this.keys.length - 1;
+        for (int j = (i + 1) & mask; this.keys[j] != null; j = (j + 1) & mask) {
+            int h = mix(this.keys[j].hashCode()) & mask; // the home slot of the j-th key
+            if (i <= j ? i < h && h <= j : i < h || h <= j)
+                continue; // the key cannot be moved to slot i
+
+            this.keys[i] = this.keys[j];
+            this.vals[i] = this.vals[j];
+            i = j;
+        }
+        this.keys[i] = null;
+        this.vals[i] = 0;
+        this.size--;
+    }
+
+    /**
+     * @param k a key
+     * @return the value associated with the key; zero if the key is not mapped
+     */
+    public int getInt(Object k) {
+        if (k == null)
+            return 0;
+
+        int i = slot(k);
+
+        return this.keys[i] == null ? 0 : this.vals[i];
+    }
+
+    /**
+     * associates a value with a key (even if the value is zero)
+     * @param k a (non-null) key
+     * @param n a value
+     * @return the previous value associated with the key (zero if it was not mapped)
+     */
+    public int putInt(K k, int n) {
+        checkMutable();
+        int i = slot(Objects.requireNonNull(k)), old = this.vals[i];
+        if (this.keys[i] == null)
+            insert(i, k, n);
+        else
+            this.vals[i] = n;
+
+        return old;
+    }
+
+    /**
+     * sums up a value to the one associated with a key, removing the key if the result is zero
+     * @param k a (non-null) key
+     * @param n the value to sum up
+     * @return the new value associated with the key
+     */
+    public int addTo(K k, int n) {
+        checkMutable();
+        int i = slot(Objects.requireNonNull(k));
+        if (this.keys[i] == null) {
+            if (n != 0)
+                insert(i, k, n);
+
+            return n;
+        }
+
+        int v = this.vals[i] + n;
+        if (v == 0)
+            removeAt(i);
+        else
+            this.vals[i] = v;
+
+        return v;
+    }
+
+    /**
+     * sums up (in place) a map to <tt>this</tt>, whose values are multiplied by a coefficient;
+     * the keys whose value becomes zero are removed
+     * @param m a map whose values are non-null
+     * @param k a multiplicative coefficient
+     */
+    @SuppressWarnings("unchecked") // the keys of im are of type K
+    public void addAll(Map<? extends K, Integer> m, int k) {
+        checkMutable();
+        if (k == 0)
+            return;
+
+        if (m instanceof IntMap<?>) {
+            IntMap<? extends K> im = (IntMap<? extends K>) m;
+            for (int j = 0; j < im.keys.length; j++)
+                if (im.keys[j] != null)
+                    addTo((K) im.keys[j], k * im.vals[j]);
+        }
+        else
+            for (Map.Entry<? extends K, Integer> e : m.entrySet())
+                addTo(e.getKey(), k * e.getValue());
+    }
+
+    /**
+     * multiplies (in place) the values of <tt>this</tt> map by a scalar
+     * @param k a scalar (if it is zero, the map is cleared)
+     */
+    public void scale(int k) {
+        checkMutable();
+        if (k == 0)
+            clear();
+        else if (k != 1)
+            for (int j = 0; j < this.keys.length; j++)
+                this.vals[j] *= k;
+    }
+
+    /**
+     * removes the keys associated with zero
+     * @return <tt>true</tt> if and only if <tt>this</tt> map is modified
+     */
+    public boolean removeZeros() {
+        checkMutable();
+        int z = 0;
+        for (int j = 0; j < this.keys.length; j++)
+            if (this.keys[j] != null && this.vals[j] == 0) {
+                this.keys[j] = null; // the table is rebuilt below
+                z++;
+            }
+        if (z == 0)
+            return false;
+
+        this.size -= z;
+        rehash(this.keys.length);
+
+        return true;
+    }
+
+    /**
+     * @return the least value of <tt>this</tt> map; <tt>Integer.MAX_VALUE</tt> if the map is empty
+     */
+    public int min() {
+        int min = Integer.MAX_VALUE;
+        for (int j = 0; j < this.keys.length; j++)
+            if (this.keys[j] != null && this.vals[j] < min)
+                min = this.vals[j];
+
+        return min;
+    }
+
+    /**
+     * performs an action on each key/value pair of <tt>this</tt> map, without boxing values
+     * @param action the action to be performed
+     */
+    @SuppressWarnings("unchecked") // the table only holds keys of type K
+    public void forEachInt(ObjIntConsumer<? super K> action) {
+        for (int j = 0; j < this.keys.length; j++)
+            if (this.keys[j] != null)
+                action.accept((K) this.keys[j], this.vals[j]);
+    }
+
+    /**
+     * @return a cursor over the key/value pairs of <tt>this</tt> map
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * a cursor over the pairs of <tt>this</tt> map: it must be advanced before accessing the first pair
+     */
+    public final class Cursor {
+
+        private int pos = -1;
+
+        /**
+         * moves to the next pair
+         * @return <tt>false</tt> if there are no more pairs
+         */
+        public boolean advance() {
+            while (++this.pos < IntMap.this.keys.length)
+                if (IntMap.this.keys[this.pos] != null)
+                    return true;
+
+            return false;
+        }
+
+        /**
+         * @return the current key
+         */
+        @SuppressWarnings("unchecked") // the table only holds keys of type K
+        public K key() {
+            return (K) IntMap.this.keys[this.pos];
+        }
+
+        /**
+         * @return the current value
+         */
+        public int value() {
+            return IntMap.this.vals[this.pos];
+        }
+    }
+
+    /**
+     * makes <tt>this</tt> map read-only (for good): every mutator then raises an exception
+     * @return <tt>this</tt>
+     */
+    public IntMap<K> freeze() {
+        this.frozen = true;
+
+        return this;
+    }
+
+    /**
+     * @return <tt>true</tt> if and only if <tt>this</tt> map is read-only
+     */
+    public boolean frozen() {
+        return this.frozen;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object k) {
+        return k != null && this.keys[slot(k)] != null;
+    }
+
+    @Override
+    public Integer get(Object k) {
+        if (k == null)
+            return null;
+
+        int i = slot(k);
+
+        return this.keys[i] == null ? null : this.vals[i];
+    }
+
+    @Override
+    public Integer put(K k, Integer v) {
+        boolean mapped = containsKey(k);
+        int old = putInt(k, v);
+
+        return mapped ? old : null;
+    }
+
+    @Override
+    public Integer remove(Object k) {
+        checkMutable();
+        if (k == null)
+            return null;
+
+        int i = slot(k);
+        if (this.keys[i] == null)
+            return null;
+
+        int old = this.vals[i];
+        removeAt(i);
+
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        checkMutable();
+        Arrays.fill(this.keys, null);
+        Arrays.fill(this.vals, 0);
+        this.size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<K, Integer>> entrySet() {
+        return new AbstractSet<Map.Entry<K, Integer>>() {
+            @Override
+            public Iterator<Map.Entry<K, Integer>> iterator() {
+                return new Iterator<Map.Entry<K, Integer>>() {
+                    private final Cursor c = cursor();
+                    private boolean next = this.c.advance();
+
+                    @Override
+                    public boolean hasNext() {
+                        return this.next;
+                    }
+
+                    @Override
+                    public Map.Entry<K, Integer> next() {
+                        if (! this.next)
+                            throw new NoSuchElementException();
+
+                        Map.Entry<K, Integer> e = new AbstractMap.SimpleImmutableEntry<>(this.c.key(), this.c.value());
+                        this.next = this.c.advance();
+
+                        return e;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return IntMap.this.size;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+
+        if (o instanceof IntMap<?>) {
+            IntMap<?> other = (IntMap<?>) o;
+            if (other.size != this.size || this.frozen && other.frozen && other.hashCode() != hashCode())
+                return false;
+
+            for (int j = 0; j < this.keys.length; j++)
+                if (this.keys[j] != null) {
+                    int i = other.slot(this.keys[j]);
+                    if (other.keys[i] == null || other.vals[i] != this.vals[j])
+                        return false;
+                }
+
+            return true;
+        }
+
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        if (this.frozen && this.hash != 0)
+            return this.hash;
+
+        int h = 0;
+        for (int j = 0; j < this.keys.length; j++)
+            if (this.keys[j] != null)
+                h += this.keys[j].hashCode() ^ this.vals[j];
+        if (this.frozen)
+            this.hash = h;
+
+        return h;
+    }
+}
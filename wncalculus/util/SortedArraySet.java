@@ -0,0 +1,270 @@
+package wncalculus.util;
+
+import java.util.*;
+
+/**
+ * this class represents immutable sets backed by an array sorted in canonical order,
+ * i.e., w.r.t. a given (total) pre-order on elements, which equal elements must be equivalent for
+ * (elements which are equivalent but not equal are kept in their insertion order);
+ * a structural order gives a stable iteration order (not depending on hashing),
+ * membership by binary search, and merge-based union; it is used to store
+ * the operands of n-ary operators
+ * @author Lorenzo Capra
+ * @param <E> the type of set elements
+ */
+public final class SortedArraySet<E> extends AbstractSet<E> {
+
+    private final Object[] elems; // the elements, in canonical order
+    private final Comparator<? super E> order;
+    private int hash; // cache (0 means not computed)
+
+    private SortedArraySet(Object[] elems, Comparator<? super E> order) {
+        this.elems = elems;
+        this.order = order;
+    }
+
+    /**
+     * builds a canonical set from a given collection of (non-null) elements, discarding
+     * duplicates
+     * @param <E> the type of elements
+     * @param c a collection
+     * @param order the canonical order
+     * @return a set with the same elements as the collection, in canonical order;
+     * <tt>c</tt> itself, if it is already a <tt>SortedArraySet</tt> with the same order
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> SortedArraySet<E> of(Collection<? extends E> c, Comparator<? super E> order) {
+        if (c instanceof SortedArraySet<?> && ((SortedArraySet<?>) c).order == order)
+            return (SortedArraySet<E>) c;
+
+        Object[] el = c.toArray();
+        if (el.length > 1)
+            Arrays.sort(el, (Comparator<Object>) order); // a stable sort
+        if (c instanceof Set<?>)
+            return new SortedArraySet<>(el, order);
+
+        int n = 0; // possible duplicates are discarded
+        for (Object e : el)
+            if (! contains(el, n, e, order))
+                el[n++] = e;
+
+        return new SortedArraySet<>(n == el.length ? el : Arrays.copyOf(el, n), order);
+    }
+
+    /**
+     * checks whether an element is in the (canonically ordered) prefix of length <tt>n</tt>
+     * of an array; the element is compared with its equivalent ones, going backward
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean contains(Object[] el, int n, Object o, Comparator<?> order) {
+        Comparator<Object> cmp = (Comparator<Object>) order;
+        for (int i = n - 1; i >= 0 && cmp.compare(el[i], o) == 0; i--)
+            if (el[i].equals(o))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * compares an element of <tt>this</tt> set with an object, which is assumed to be of the same type
+     * (otherwise <tt>ClassCastException</tt> is raised)
+     */
+    @SuppressWarnings("unchecked")
+    private int compare(Object e, Object o) {
+        return this.order.compare((E) e, (E) o);
+    }
+
+    /**
+     * @return the position of the specified element, or a negative value if it is not in <tt>this</tt> set
+     */
+    private int indexOf(Object o) {
+        int lo = 0, hi = this.elems.length; // we look for the first element not less than o
+        try {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(this.elems[mid], o) < 0)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            for (; lo < this.elems.length && compare(this.elems[lo], o) == 0; lo++)
+                if (this.elems[lo].equals(o))
+                    return lo;
+        }
+        catch (ClassCastException x) { } // o is not of the elements' type
+
+        return -1;
+    }
+
+    /**
+     * @param i a position
+     * @return the element in the specified position, w.r.t. the canonical order
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int i) {
+        return (E) this.elems[i];
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && indexOf(o) >= 0;
+    }
+
+    /**
+     * @return the order <tt>this</tt> set is sorted by
+     */
+    public Comparator<? super E> order() {
+        return this.order;
+    }
+
+    @Override
+    public int size() {
+        return this.elems.length;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < SortedArraySet.this.elems.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (this.next == SortedArraySet.this.elems.length)
+                    throw new NoSuchElementException();
+
+                return (E) SortedArraySet.this.elems[this.next++];
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        return this.elems.clone();
+    }
+
+    /**
+     * @param o an object
+     * @return a set with the same elements as <tt>this</tt>, but the specified one;
+     * <tt>this</tt> if the object is not in the set
+     */
+    public SortedArraySet<E> without(Object o) {
+        int i = o == null ? -1 : indexOf(o);
+        if (i < 0)
+            return this;
+
+        final int size = this.elems.length;
+        Object[] el = new Object[size - 1];
+        System.arraycopy(this.elems, 0, el, 0, i);
+        System.arraycopy(this.elems, i + 1, el, i, size - i - 1);
+
+        return new SortedArraySet<>(el, this.order);
+    }
+
+    /**
+     * @param c a collection
+     * @return a set with the same elements as <tt>this</tt>, but those in the collection
+     */
+    public SortedArraySet<E> without(Collection<?> c) {
+        ArrayList<Object> el = new ArrayList<>();
+        Set<?> cset = c instanceof Set<?> ? (Set<?>) c : new HashSet<>(c);
+        for (Object e : this.elems)
+            if (! cset.contains(e))
+                el.add(e);
+
+        return el.size() == this.elems.length ? this : new SortedArraySet<>(el.toArray(), this.order);
+    }
+
+    /**
+     * @param e a (non-null) element
+     * @return a set with the same elements as <tt>this</tt>, plus the specified one;
+     * <tt>this</tt> if the element is already in the set
+     */
+    public SortedArraySet<E> with(E e) {
+        if (indexOf(e) >= 0)
+            return this;
+
+        final int size = this.elems.length;
+        int i = 0;
+        while (i < size && compare(this.elems[i], e) <= 0)
+            i++;
+        Object[] el = new Object[size + 1];
+        System.arraycopy(this.elems, 0, el, 0, i);
+        System.arraycopy(this.elems, i, el, i + 1, size - i);
+        el[i] = e;
+
+        return new SortedArraySet<>(el, this.order);
+    }
+
+    /**
+     * merges two canonical sets
+     * @param <E> the type of elements
+     * @param s1 a set
+     * @param s2 a set, assumed sorted w.r.t. the same order as <tt>s1</tt>
+     * @return the union of the two sets (one of them, if the other is included)
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> SortedArraySet<E> union(SortedArraySet<? extends E> s1, SortedArraySet<? extends E> s2) {
+        final int n1 = s1.elems.length, n2 = s2.elems.length;
+        Object[] el = new Object[n1 + n2];
+        int i = 0, j = 0, n = 0;
+        while (i < n1 || j < n2) {
+            Object e = j == n2 || i < n1 && s1.compare(s1.elems[i], s2.elems[j]) <= 0 ? s1.elems[i++] : s2.elems[j++];
+            if (! contains(el, n, e, s1.order))
+                el[n++] = e;
+        }
+        if (n == n1)
+            return (SortedArraySet<E>) s1;
+        if (n == n2)
+            return (SortedArraySet<E>) s2;
+
+        return new SortedArraySet<>(Arrays.copyOf(el, n), (Comparator<? super E>) s1.order);
+    }
+
+    /**
+     * merges a collection of sets
+     * @param <E> the type of elements
+     * @param sets a (non-empty) collection of sets; non canonical sets are converted
+     * @param order the canonical order
+     * @return the union of the sets
+     */
+    public static <E> SortedArraySet<E> union(Collection<? extends Collection<? extends E>> sets, Comparator<? super E> order) {
+        SortedArraySet<E> res = new SortedArraySet<>(new Object[0], order);
+        for (Collection<? extends E> s : sets)
+            res = union(res, of(s, order));
+
+        return res;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+
+        if (o instanceof SortedArraySet<?>) {
+            SortedArraySet<?> other = (SortedArraySet<?>) o;
+            if (other.elems.length != this.elems.length || other.hashCode() != hashCode())
+                return false;
+
+            if (Arrays.equals(this.elems, other.elems))
+                return true;
+        }
+
+        return super.equals(o); // elements with the same key may be differently ordered
+    }
+
+    @Override
+    public int hashCode() {
+        if (this.hash == 0)
+            this.hash = super.hashCode();
+
+        return this.hash;
+    }
+
+}
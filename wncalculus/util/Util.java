@@ -3,6 +3,7 @@ package wncalculus.util;
 import java.io.IOException;
 import java.util.function.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 import wncalculus.expr.Expression;
 
@@ -506,36 +507,51 @@ public class Util  {
     
     //versione non ricorsiva
     /**
-     * performs the Cartesian product among a list of sets of terms of a given type
+     * performs the Cartesian product among a list of sets of terms of a given type;
+     * the product is enumerated lazily (see <tt>CartesianProduct</tt>), so no intermediate
+     * set is built
      * @param <E> the terms' type
      * @param listofset the list of sets
      * @return a set of list corresponding to the product; a singleton containing
      * an empty list (by convention) if either <tt>sets</tt> or any set is empty
      */
     public static <E> Set<List<E>> cartesianProd(final List<? extends Set<? extends E>> listofset) {
-        final Set<List<E>> init = Collections.singleton(Collections.emptyList());
-    	      Set<List<E>> res = init; //at the beginning res contains just an empty list
-    	
-        for (int i = 0, l = listofset.size() ; i < l ; i++) {
-            	Set<? extends E> iset = listofset.get(i);
-            	if ( iset.isEmpty() )
-            		return init;
-            	
-            	Set<List<E>> partial_res = new HashSet<>();
-            	for (List<E> y : res) {
-	            	iset.forEach( x -> { 
-		                List<E> temp = new ArrayList<>(y);
-		                temp.add(x);
-		                partial_res.add(temp);
-		            });	
-            	}
-	            res = partial_res;
-            }
+        CartesianProduct<E> prod = CartesianProduct.of(listofset);
+        if (prod.size() == 0)
+            return Collections.singleton(Collections.emptyList());
+        
+        final Set<List<E>> res = new HashSet<>();
+        prod.stream().forEach(res::add);
         
         return res;
     }
     
     
+    /**
+     * lazily performs the Cartesian product among a list of collections of terms of a given type:
+     * the lists forming the product are generated one at a time (in lexicographic order w.r.t.
+     * the collections' iteration order), without building any intermediate set
+     * @param <E> the terms' type
+     * @param listofsets the list of collections
+     * @param parallel parallel-stream flag
+     * @return an ordered stream of the lists forming the product; a stream holding
+     * just an empty list (by convention) if either <tt>listofsets</tt> or any collection is empty
+     */
+    public static <E> Stream<List<E>> cartesianStream(final List<? extends Collection<? extends E>> listofsets, boolean parallel) {
+        CartesianProduct<E> prod = CartesianProduct.of(listofsets);
+        
+        return prod.size() == 0 ? Stream.of(Collections.emptyList()) : prod.stream(parallel);
+    }
+    
+    /**
+     * sequential version of <tt>cartesianStream</tt>
+     * @param <E> the terms' type
+     * @param listofsets the list of collections
+     * @return a (sequential, ordered) stream of the lists forming the product
+     */
+    public static <E> Stream<List<E>> cartesianStream(final List<? extends Collection<? extends E>> listofsets) {
+        return cartesianStream(listofsets, false);
+    }
     
     /**
      * return the value modulo-n of a specified integer value
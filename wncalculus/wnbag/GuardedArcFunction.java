@@ -81,6 +81,12 @@ public final class GuardedArcFunction implements BagfunctionTuple, GuardedExpr<B
         return GuardedExpr.super.toStringGuardedExpr() ;
     }
 
+    
+    @Override
+    public void print(Printer p) {
+        GuardedExpr.super.printGuardedExpr(p);
+    }
+
     @Override
     public BagfunctionTuple build(Guard f, Guard g) {
         return new GuardedArcFunction(f, this.expr, g, false);
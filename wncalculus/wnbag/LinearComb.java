@@ -12,6 +12,7 @@ import wncalculus.expr.IllegalDomain;
 import wncalculus.expr.ParametricExpr;
 import wncalculus.expr.Sort;
 import wncalculus.guard.Equality;
+import wncalculus.guard.Substitution;
 
 /**
  * this class defines linear combination of basic class-funtions
@@ -19,7 +20,9 @@ import wncalculus.guard.Equality;
  */
 public final class LinearComb extends LogicalBag<ElementaryFunction> implements ClassFunction {
     	
-    HashMap<Integer, Map<ElementaryFunction, Integer> > components; //cache: the components, separated by index (0 is for constants)
+    volatile HashMap<Integer, Map<ElementaryFunction, Integer> > components; //cache: the components, separated by index (0 is for constants)
+    private volatile SparseVector vector; //cache
+    private volatile SortedMap<Integer, LinearComb> index_components; //cache
 	
     /**
      * base constructor: creates a linear-combination (i.e., a bag) of (elementary) class-functions
@@ -38,6 +41,26 @@ public final class LinearComb extends LogicalBag<ElementaryFunction> implements
         this(m, false);
     }
     
+    /**
+     * creates a linear-combination (i.e., a bag) of (elementary) class-functions,
+     * from its (non-empty) sparse-vector form
+     * @param v a vector
+     */
+    private LinearComb(SparseVector v) {
+        this(v.toIntMap());
+        this.vector = v;
+    }
+    
+    /**
+     * builds a linear-combination from its sparse-vector form
+     * @param v a vector
+     * @param cc the linear-combination's colour (used if the vector is empty)
+     * @return the corresponding linear-combination
+     */
+    public static LinearComb of(SparseVector v, ColorClass cc) {
+        return v.isEmpty() ? new LinearComb(cc) : new LinearComb(v);
+    }
+    
     /**
      * creates a linear-combination (i.e., a bag) of (elementary) class-functions,
      * from a collection
@@ -70,7 +93,7 @@ public final class LinearComb extends LogicalBag<ElementaryFunction> implements
      * @param cc the bag's colour
      */
     public LinearComb(ColorClass cc) {
-        super( new Domain(Util.singleMap(cc, 1)));
+        super( Domain.of(Util.singleMap(cc, 1)));
     }
 
     public LinearComb(Domain d, Domain cd) {
@@ -99,10 +122,7 @@ public final class LinearComb extends LogicalBag<ElementaryFunction> implements
         if (s.isEmpty() || s.size() == 1 && s.iterator().next() == 1)
             return this;
         
-        Map<ElementaryFunction, Integer> m = new HashMap<>();
-        asMap().entrySet().forEach( x -> { m.put(x.getKey().setDefaultIndex(), x.getValue()); });
-        
-        return new LinearComb(m);
+        return of(asVector().map(f -> f.setDefaultIndex()), getSort());
     }
     
     
@@ -112,28 +132,48 @@ public final class LinearComb extends LogicalBag<ElementaryFunction> implements
     }
     
     
+    /**
+     * @return the sparse-vector form of <tt>this</tt> l.c. (computed once)
+     */
+    public SparseVector asVector() {
+        if (this.vector == null)
+            this.vector = SparseVector.of(asIntMap());
+        
+        return this.vector;
+    }
+    
+    /**
+     * extracts the components of <tt>this</tt> l.c. composed of terms with the same index,
+     * by grouping the terms of its sparse-vector form
+     * @return a map between indices and corresponding sub-l.c.s, sorted by index; possibly, constant functions
+     * are bring together to functions of a given index (that is, if the key 0
+     * is present at the end, then it is the only key present in the returned map, meaning
+     * that the linear combination is made up of constants); if there is just one key, it is mapped
+     * to <tt>this</tt> l.c.
+     */
+    public SortedMap<Integer, LinearComb> indexComponents () {
+        if (this.index_components == null) {
+            SortedMap<Integer, LinearComb> ic = new TreeMap<>();
+            asVector().byIndex().forEach((i, v) -> { ic.put(i, v == this.vector ? this : of(v, getSort())); });
+            this.index_components = Collections.unmodifiableSortedMap(ic);
+        }
+        
+        return this.index_components;
+    }
+    
     /**
      * extracts the components of <tt>this</tt> l.c. composed of terms with the same index
      * @return a map between indices and corresponding (sub-)bags ; possibly, constant functions
      * are bring together to functions of a given index (that is, if the key 0
      * is present at the end, then it is the only key present in the returned map, meaning
      * that the linear combination is made up of constants)
+     * it builds on <tt>indexComponents</tt>
      */
     public HashMap<Integer, Map<ElementaryFunction, Integer>> components () {
     	if (this.components == null) {
-    		this.components = new HashMap<>();
-                support().forEach(f -> {
-	            Integer i = f instanceof Projection ? ((Projection)f).getIndex() : 0;
-	            Map<ElementaryFunction, Integer> b = this.components.get(i);
-	            if (b == null) 
-	            	this.components.put(i, b = new HashMap<>());
-	            b.put(f, mult(f)); 
-	        });
-                Map<ElementaryFunction, Integer> b;
-                if (this.components.size() > 1 && (b = this.components.get(0)) != null ) {
-                    this.components.remove(0);
-                    this.components.get(this.components.keySet().iterator().next()).putAll(b);
-                }
+            HashMap<Integer, Map<ElementaryFunction, Integer>> comps = new HashMap<>(); // published when complete
+            indexComponents().forEach((i, lc) -> { comps.put(i, (Map<ElementaryFunction, Integer>) lc.asMap()); });
+            this.components = comps;
     	}
         
     	return this.components;
@@ -144,29 +184,43 @@ public final class LinearComb extends LogicalBag<ElementaryFunction> implements
      */
     @Override
     public Set<Integer> indexSet() {
-         Set<Integer> s = components().keySet();
+         Set<Integer> s = indexComponents().keySet();
     	 
     	 return s.contains(0) ? Collections.emptySet() : s;
     }
 
     @Override
     public LinearComb replace(Equality eq) {
-        HashMap<ElementaryFunction, Integer> copy = new HashMap<>();
-        asMap().entrySet().forEach(x -> {
-            ElementaryFunction k = x.getKey().replace(eq);
-            Integer m = copy.get(k);
-            copy.put(k, x.getValue() + (m == null ? 0 : m));
-        });
+        return of(asVector().map(f -> f.replace(eq)), getSort());
+    }
+    
+    @Override
+    public LinearComb replace(Substitution s) {
+        if (s.isIdentity() || ! getSort().equals(s.getSort()))
+            return this;
         
-        return new LinearComb(copy);
+        SparseVector v = asVector(), rv = v.map(f -> f.replace(s));
+        
+        return rv == v ? this : of(rv, getSort());
     }
     
     @Override
     public LinearComb copy(ColorClass newcc) {
-        HashMap<ElementaryFunction, Integer>  newmap = new HashMap<>();
-        asMap().entrySet().forEach(e -> { newmap.put(e.getKey().copy(newcc), e.getValue()); });
+        return of(asVector().map(f -> f.copy(newcc)), newcc);
+    }
+    
+    /**
+     * computes the weighted sum between linear combinations by merging their sparse-vector forms
+     * @param b a bag
+     * @param k a weight
+     * @return the weighted sum between <tt>this</tt> and the specified bag
+     */
+    @Override
+    public Bag<ElementaryFunction> sum(Bag<ElementaryFunction> b, int k) {
+        if (b instanceof LinearComb && ((LinearComb) b).getSort().equals(getSort()))
+            return of(asVector().add(((LinearComb) b).asVector(), k), getSort());
         
-        return new LinearComb(newmap);
+        return super.sum(b, k);
     }
     
     @Override
@@ -174,6 +228,14 @@ public final class LinearComb extends LogicalBag<ElementaryFunction> implements
         return ElementaryFunction.class;
     }
 
+    /**
+     * static subclasses are pair-wise disjoint, so a subclass' signature is its index
+     */
+    @Override
+    protected Object signature(ElementaryFunction f) {
+        return f instanceof Subcl ? ((Subcl) f).index() : null;
+    }
+
     @Override
     public LinearComb build(Map<? extends ParametricExpr, Integer> m) {
         return new LinearComb((Map<ElementaryFunction, Integer>) m);
@@ -188,7 +250,7 @@ public final class LinearComb extends LogicalBag<ElementaryFunction> implements
     @Override
     public LinearComb scalarProdFactory(BagExpr arg, int k) {
         LinearComb lc = (LinearComb) arg;
-        return new LinearComb(Bag.scalarprod(lc.asMap(), k));
+        return of(lc.asVector().scale(k), lc.getSort());
     }
     
     /**
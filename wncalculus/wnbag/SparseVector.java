@@ -0,0 +1,309 @@
+package wncalculus.wnbag;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+import wncalculus.classfunction.ElementaryFunction;
+import wncalculus.classfunction.Projection;
+import wncalculus.util.IntMap;
+
+/**
+ * this class represents the (immutable) sparse-vector form of a linear combination of elementary functions:
+ * terms are stored in an array sorted by their (unique) identifiers, together with a parallel array of
+ * (non-zero) coefficients, so that the linear operations (sum, scalar product, grouping by index)
+ * are done by merging arrays, without hashing or boxing
+ * @author Lorenzo Capra
+ */
+public final class SparseVector {
+
+    /**
+     * the empty vector
+     */
+    public static final SparseVector EMPTY = new SparseVector(new ElementaryFunction[0], new int[0]);
+
+    private final ElementaryFunction[] terms; // sorted by id, without repetitions
+    private final int[] coeffs; // non-zero coefficients
+    private int hash; // cache (0 means not computed)
+
+    private SparseVector(ElementaryFunction[] terms, int[] coeffs) {
+        this.terms  = terms;
+        this.coeffs = coeffs;
+    }
+
+    /**
+     * builds a vector from the first <tt>n</tt> pairs of two parallel arrays, in any order:
+     * the coefficients of repeated terms are summed up, zero coefficients are discarded;
+     * the arrays are possibly used by the vector
+     */
+    private static SparseVector build(ElementaryFunction[] t, int[] k, int n) {
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; i++)
+            sorted = t[i - 1].id() < t[i].id();
+        if (! sorted) { // the pairs are sorted by id, encoding each as id and position
+            long[] ord = new long[n];
+            for (int i = 0; i < n; i++)
+                ord[i] = (long) t[i].id() << 32 | i;
+            Arrays.sort(ord);
+            ElementaryFunction[] st = new ElementaryFunction[n];
+            int[] sk = new int[n];
+            for (int i = 0; i < n; i++) {
+                int p = (int) ord[i];
+                st[i] = t[p];
+                sk[i] = k[p];
+            }
+            t = st;
+            k = sk;
+        }
+        int m = 0; // repetitions and zeros are squeezed
+        for (int i = 0; i < n; i++)
+            if (m > 0 && t[m - 1] == t[i])
+                k[m - 1] += k[i];
+            else {
+                if (m > 0 && k[m - 1] == 0)
+                    m--;
+                t[m] = t[i];
+                k[m++] = k[i];
+            }
+        if (m > 0 && k[m - 1] == 0)
+            m--;
+        if (m == 0)
+            return EMPTY;
+
+        return m == t.length ? new SparseVector(t, k) : new SparseVector(Arrays.copyOf(t, m), Arrays.copyOf(k, m));
+    }
+
+    /**
+     * @param m a map from elementary functions to (integer) coefficients
+     * @return the corresponding vector
+     */
+    public static SparseVector of(Map<? extends ElementaryFunction, Integer> m) {
+        final int n = m.size();
+        ElementaryFunction[] t = new ElementaryFunction[n];
+        int[] k = new int[n];
+        if (m instanceof IntMap<?>) {
+            int i = 0;
+            for (IntMap<? extends ElementaryFunction>.Cursor c = ((IntMap<? extends ElementaryFunction>) m).cursor(); c.advance(); i++) {
+                t[i] = c.key();
+                k[i] = c.value();
+            }
+        }
+        else {
+            int i = 0;
+            for (Map.Entry<? extends ElementaryFunction, Integer> e : m.entrySet()) {
+                t[i] = e.getKey();
+                k[i++] = e.getValue();
+            }
+        }
+
+        return build(t, k, n);
+    }
+
+    /**
+     * @return the number of terms of <tt>this</tt> vector
+     */
+    public int size() {
+        return this.terms.length;
+    }
+
+    /**
+     * @return <tt>true</tt> if and only if <tt>this</tt> is the empty vector
+     */
+    public boolean isEmpty() {
+        return this.terms.length == 0;
+    }
+
+    /**
+     * @param i a position
+     * @return the term in the specified position
+     */
+    public ElementaryFunction term(int i) {
+        return this.terms[i];
+    }
+
+    /**
+     * @param i a position
+     * @return the coefficient in the specified position
+     */
+    public int coeff(int i) {
+        return this.coeffs[i];
+    }
+
+    /**
+     * @param f an elementary function
+     * @return the coefficient of the function; zero if it is not a term of <tt>this</tt> vector
+     */
+    public int coeff(ElementaryFunction f) {
+        int lo = 0, hi = this.terms.length - 1, id = f.id();
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1, midid = this.terms[mid].id();
+            if (midid < id)
+                lo = mid + 1;
+            else if (midid > id)
+                hi = mid - 1;
+            else
+                return this.coeffs[mid];
+        }
+
+        return 0;
+    }
+
+    /**
+     * computes a weighted sum, by merging the (sorted) terms
+     * @param v a vector
+     * @param k a weight
+     * @return the sum between <tt>this</tt> and <tt>k</tt> times <tt>v</tt>
+     */
+    public SparseVector add(SparseVector v, int k) {
+        if (k == 0 || v.isEmpty())
+            return this;
+
+        if (isEmpty())
+            return v.scale(k);
+
+        final int n1 = this.terms.length, n2 = v.terms.length;
+        ElementaryFunction[] t = new ElementaryFunction[n1 + n2];
+        int[] c = new int[n1 + n2];
+        int i = 0, j = 0, m = 0;
+        while (i < n1 || j < n2) {
+            int cmp = i == n1 ? 1 : j == n2 ? -1 : Integer.compare(this.terms[i].id(), v.terms[j].id());
+            if (cmp < 0) {
+                t[m] = this.terms[i];
+                c[m++] = this.coeffs[i++];
+            }
+            else if (cmp > 0) {
+                t[m] = v.terms[j];
+                c[m++] = k * v.coeffs[j++];
+            }
+            else {
+                int s = this.coeffs[i] + k * v.coeffs[j];
+                if (s != 0) {
+                    t[m] = this.terms[i];
+                    c[m++] = s;
+                }
+                i++;
+                j++;
+            }
+        }
+        if (m == 0)
+            return EMPTY;
+
+        return m == t.length ? new SparseVector(t, c) : new SparseVector(Arrays.copyOf(t, m), Arrays.copyOf(c, m));
+    }
+
+    /**
+     * @param k a scalar
+     * @return the product between <tt>this</tt> vector and the scalar
+     */
+    public SparseVector scale(int k) {
+        if (k == 1)
+            return this;
+
+        if (k == 0)
+            return EMPTY;
+
+        int[] c = new int[this.coeffs.length];
+        for (int i = 0; i < c.length; i++)
+            c[i] = k * this.coeffs[i];
+
+        return new SparseVector(this.terms, c);
+    }
+
+    /**
+     * replaces each term of <tt>this</tt> vector by applying a function: the coefficients
+     * of terms becoming equal are summed up
+     * @param f a function on elementary functions
+     * @return the resulting vector; <tt>this</tt> if no term is replaced
+     */
+    public SparseVector map(UnaryOperator<ElementaryFunction> f) {
+        ElementaryFunction[] t = null;
+        for (int i = 0; i < this.terms.length; i++) {
+            ElementaryFunction x = f.apply(this.terms[i]);
+            if (x != this.terms[i] && t == null)
+                t = Arrays.copyOf(this.terms, this.terms.length);
+            if (t != null)
+                t[i] = x;
+        }
+
+        return t == null ? this : build(t, this.coeffs.clone(), t.length);
+    }
+
+    /**
+     * groups the terms of <tt>this</tt> vector by their (projection) index, constants being mapped to 0;
+     * if there are both constants and projections, the constants are merged into the group
+     * with the least index (so, the key 0 is present only if all terms are constants)
+     * @return a map between indices and corresponding sub-vectors (sorted by index)
+     */
+    public SortedMap<Integer, SparseVector> byIndex() {
+        final int n = this.terms.length;
+        int[] idx = new int[n];
+        TreeMap<Integer, int[]> count = new TreeMap<>();
+        for (int i = 0; i < n; i++) {
+            ElementaryFunction f = this.terms[i];
+            idx[i] = f instanceof Projection ? ((Projection) f).getIndex() : 0;
+            count.computeIfAbsent(idx[i], x -> new int[1])[0]++;
+        }
+        SortedMap<Integer, SparseVector> res = new TreeMap<>();
+        if (count.size() == 1) {
+            res.put(count.firstKey(), this);
+            return res;
+        }
+
+        count.forEach((x, c) -> {
+            ElementaryFunction[] t = new ElementaryFunction[c[0]];
+            int[] k = new int[c[0]];
+            for (int i = 0, m = 0; m < t.length; i++) // the order of terms is kept
+                if (idx[i] == x) {
+                    t[m] = this.terms[i];
+                    k[m++] = this.coeffs[i];
+                }
+            res.put(x, new SparseVector(t, k));
+        });
+        SparseVector constants = res.remove(0);
+        if (constants != null) {
+            Integer first = res.firstKey();
+            res.put(first, res.get(first).add(constants, 1));
+        }
+
+        return res;
+    }
+
+    /**
+     * @return a (modifiable) map-view of <tt>this</tt> vector
+     */
+    public IntMap<ElementaryFunction> toIntMap() {
+        IntMap<ElementaryFunction> m = new IntMap<>(this.terms.length);
+        for (int i = 0; i < this.terms.length; i++)
+            m.putInt(this.terms[i], this.coeffs[i]);
+
+        return m;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+
+        if (o instanceof SparseVector) {
+            SparseVector other = (SparseVector) o;
+            return Arrays.equals(this.terms, other.terms) && Arrays.equals(this.coeffs, other.coeffs);
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        if (this.hash == 0)
+            this.hash = 31 * Arrays.hashCode(this.terms) + Arrays.hashCode(this.coeffs);
+
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < this.terms.length; i++)
+            sb.append(i > 0 ? ", " : "").append(this.coeffs[i]).append(this.terms[i]);
+
+        return sb.append(']').toString();
+    }
+}
@@ -5,6 +5,7 @@ import wncalculus.bagexpr.AbstractBag;
 import wncalculus.bagexpr.Bag;
 import wncalculus.expr.Domain;
 import wncalculus.expr.ParametricExpr;
+import wncalculus.util.IntMap;
 import wncalculus.util.Util;
 
 /**
@@ -54,7 +55,7 @@ public final class TupleBag extends AbstractBag<BagfunctionTuple> implements Bag
             Integer xcard = x.getKey().card();
             if (xcard == null)
                 return null;
-            mycard *= xcard * x.getValue();
+            mycard += xcard * x.getValue();
         }
            
         return card = mycard; //return and storein the cache
@@ -90,22 +91,17 @@ public final class TupleBag extends AbstractBag<BagfunctionTuple> implements Bag
     @Override
     public BagfunctionTuple specSimplify() {
         if (Util.checkAny(support(), t -> t instanceof Bag<?>)) { //check for nested bags
-            HashMap<BagfunctionTuple, Integer> copy = new HashMap<>(asMap());
-            HashMap<TupleBag,Integer> nested = new HashMap<>();
-            Iterator<Map.Entry<BagfunctionTuple, Integer>> ite = copy.entrySet().iterator();
-            while (ite.hasNext()) {
-                Map.Entry<BagfunctionTuple, Integer> e = ite.next();
-                if ( e.getKey() instanceof Bag<?> ) {
-                    nested.put((TupleBag) e.getKey(), e.getValue());
-                    ite.remove(); //the nested bag is removed from copy
-                }
-            }
-            //sum of nested         
-            HashMap<BagfunctionTuple,Integer> sum = new HashMap<>();
-            nested.entrySet().forEach(x -> { Bag.addAll(sum, x.getKey().asMap(), x.getValue()); });
-            Bag.addAll(sum, copy, 1); //residual original bag elements are summed up
+            IntMap<BagfunctionTuple> sum = new IntMap<>(size());
+            asIntMap().forEachInt((e, k) -> { 
+                if ( e instanceof Bag<?> ) //nested bags are summed up
+                    sum.addAll(((TupleBag) e).asIntMap(), k);
+            });
+            asIntMap().forEachInt((e, k) -> { 
+                if ( !(e instanceof Bag<?>) ) //residual original bag elements are summed up
+                    sum.addTo(e, k);
+            });
             
-            return new TupleBag(sum);
+            return sum.isEmpty() ? new TupleBag(getDomain(), getCodomain()) : new TupleBag(sum);
         } 
       
         //return this;
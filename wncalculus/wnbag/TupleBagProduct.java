@@ -2,6 +2,7 @@ package wncalculus.wnbag;
 
 import java.util.*;
 import wncalculus.tuple.AbstractTupleProduct;
+import wncalculus.util.IntMap;
 
 /**
  *
@@ -64,11 +65,11 @@ public final class TupleBagProduct extends AbstractTupleProduct<LinearComb,Bagfu
     @Override
     public BagfunctionTuple expand(int inner_sum) {
         TupleBag t_bag = (TupleBag) getArgs().get(inner_sum); //bag of tuples
-        HashMap<BagfunctionTuple,Integer> prod_sum = new HashMap<>(); 
-        t_bag.asMap().entrySet().forEach(e -> {
+        IntMap<BagfunctionTuple> prod_sum = new IntMap<>(t_bag.size()); 
+        t_bag.asIntMap().forEachInt((f, k) -> {
             List<BagfunctionTuple> simp_list = new ArrayList<>(getArgs());
-            simp_list.set(inner_sum,  e.getKey());
-            prod_sum.put(TupleBagProduct.factory(simp_list,false), e.getValue());
+            simp_list.set(inner_sum,  f);
+            prod_sum.putInt(TupleBagProduct.factory(simp_list,false), k);
         });
 
         return new TupleBag(prod_sum);
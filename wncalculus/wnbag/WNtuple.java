@@ -2,7 +2,8 @@ package wncalculus.wnbag;
 
 import java.util.*;
 import java.util.Map.Entry;
-import wncalculus.classfunction.ElementaryFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import wncalculus.color.ColorClass;
 import wncalculus.expr.*;
 import wncalculus.guard.And;
@@ -18,6 +19,8 @@ import wncalculus.util.Util;
  * @author lorenzo capra
  */
 public final class WNtuple extends AbstractTuple<LinearComb,BagfunctionTuple> implements BagfunctionTuple {
+    
+    private Integer card; //cache
 
     /**
      * base constructor: creates a <tt>WNtuple</tt> from a list of class-functions
@@ -57,16 +60,33 @@ public final class WNtuple extends AbstractTuple<LinearComb,BagfunctionTuple> im
 
     /**
      * 
-     * @return the tuple's expansion as a set of list of entries matching tuple's
-     * components containing variables of the same index
-     * it builds on <tt>Util.cartesianProd</tt>
+     * @return the tuple's (lazy) expansion as a stream of lists of sub-components (i.e., l.c.s)
+     * of tuple's components containing variables of the same index
+     * it builds on <tt>Util.cartesianStream</tt> and <tt>LinearComb.indexComponents</tt>
      * should be invoked on single-color tuples
      */
-    private Set<List<Entry<Integer, Map<ElementaryFunction, Integer>>>> expand( ) {
-    	List<Set<Entry<Integer, Map<ElementaryFunction, Integer>>>> l = new ArrayList<>();
-    	getComponents().stream().map(cx -> cx.components().entrySet()).forEachOrdered(l::add);
+    private Stream<List<LinearComb>> expand( ) {
+    	List<Collection<LinearComb>> l = new ArrayList<>();
+    	getComponents().stream().map(cx -> cx.indexComponents().values()).forEachOrdered(l::add);
     	
-    	return Util.cartesianProd(l);
+    	return Util.cartesianStream(l);
+    }
+    
+    /**
+     * lazily performs a kind of Cartesian product on <tt>this</tt> tuple, resulting in the tuples
+     * whose components contain constants or variables with the same index: tuples are built
+     * one at a time, as the stream is consumed
+     * should be invoked on single-color tuples, otherwise, it raises an exception
+     * it builds on <tt>expand()</tt>
+     * @return a stream of the tuples <tt>this</tt> tuple expands to; a stream holding just
+     * <tt>this</tt>, if no expansion is needed
+     */
+    public Stream<WNtuple> singleIndexComponentsStream() {
+        if (getComponents().stream().allMatch(cx -> cx.indexComponents().size() < 2))
+            return Stream.of(this); //optimization
+        
+        ColorClass cc = getSort(); // the tuple is assumed-single color
+        return expand().map(lc -> new WNtuple (null, getCodomain(), Util.singleSortedMap(cc, lc), guard() /*null*/, getDomain()));
     }
     
     /**
@@ -81,19 +101,7 @@ public final class WNtuple extends AbstractTuple<LinearComb,BagfunctionTuple> im
      * it build on <tt>expand()</tt>
      */
     public Set<? extends WNtuple> singleIndexComponentsTuples() {
-    	HashSet<WNtuple> tset = new HashSet<>();
-    	Set<List<Entry<Integer, Map<ElementaryFunction, Integer>>>> expansion = expand();
-    	if (expansion.size() == 1)
-            return Collections.singleton(this); //optimization
-        
-        ColorClass cc = getSort(); // the tuple is assumed-single color
-    	for (List<Entry<Integer, Map<ElementaryFunction, Integer>>> lx : expansion) {
-            List<LinearComb> lc = new ArrayList<>();
-            lx.forEach(x -> { lc.add(new LinearComb(x.getValue())); });
-            tset.add(new WNtuple (null, getCodomain(), Util.singleSortedMap(cc, lc), guard() /*null*/, getDomain()));
-    	}
-    	
-    	return tset;		
+    	return singleIndexComponentsStream().collect(Collectors.toCollection(HashSet::new));		
     }
     
     /**
@@ -188,20 +196,27 @@ public final class WNtuple extends AbstractTuple<LinearComb,BagfunctionTuple> im
 
     
     //implementazione parziale (non viene considerato il filtro)
+    /**
+     * @return the tuple's cardinality (computed once); <tt>null</tt> if it cannot be computed
+     */
     @Override
     public Integer card() {
         if (this.filter() != null)
             return null; //temporaneo!
         
-        int card = 0;
-        for (LinearComb x : getComponents()) {
-            Integer xcard = x.card();
-            if (xcard == null)
-                return null;
-            
-            card += xcard;
+        if (this.card == null) {
+            int mycard = 0;
+            for (LinearComb x : getComponents()) {
+                Integer xcard = x.card();
+                if (xcard == null)
+                    return null;
+
+                mycard += xcard;
+            }
+            this.card = mycard;
         }
-        return card;
+        
+        return this.card;
     }
     
     @Override
@@ -228,10 +243,8 @@ public final class WNtuple extends AbstractTuple<LinearComb,BagfunctionTuple> im
                  return onesortedTupleCompose(right); //may return null 
 
              List<BagfunctionTuple> compositions  = new ArrayList<>();
-             my_parts.entrySet().forEach( h_part -> {
-                 ColorClass c = h_part.getKey();
-                 List<? extends LinearComb> list = h_part.getValue();
-                 compositions.add(new TupleBagComp( new WNtuple (null, new Domain(c , list.size()), Util.singleSortedMap(c,list), null, getDomain()),  right));
+             oneSortedParts().values().forEach( h_part -> {
+                 compositions.add(new TupleBagComp( h_part.cast(),  right));
             });
              
             return TupleBagProduct.factory(compositions);
@@ -245,10 +258,8 @@ public final class WNtuple extends AbstractTuple<LinearComb,BagfunctionTuple> im
         });
         // residual sub-tuples not having any associated infilter ....
         my_parts.keySet().forEach(col -> {
-            if (hom_filters.get(col) == null) {
-                List<? extends LinearComb> st = my_parts.get(col); // the sub-tuple of cc_low_case cc_name
-                compositions.add(new TupleBagComp(new WNtuple (null, new Domain(col,st.size()),  Util.singleSortedMap(col, st) , null, getDomain()), right_nof));
-            }
+            if (hom_filters.get(col) == null) 
+                compositions.add(new TupleBagComp(oneSortedParts().get(col).cast(), right_nof)); // the sub-tuple of color col
         });
         //System.out.println("basecompose ->\n"+res); //debug
         return TupleBagProduct.factory(compositions);